@@ -0,0 +1,32 @@
+/**
+ * Callback used by a {@link LifeEngine} to report how many live cells there are in square
+ * blocks of cells, e.g. to draw a map of how dense the universe is when it is too far away
+ * to draw cell by cell.
+ * @author Dirglehurbleherb
+ */
+public interface BlockVisitor {
+
+	/**
+	 * Called with the live cells of a block, or of part of it; the counts reported for a block add up to its population.
+	 * @param blockX column of the block, whose cells are in the columns blockX * 2^log2 to (blockX + 1) * 2^log2 - 1
+	 * @param blockY row of the block, likewise
+	 * @param population number of live cells counted
+	 */
+	void visit(int blockX, int blockY, long population);
+
+	/**
+	 * Reports the live cells of 64 cells of row y, bit i standing for the cell at x + i,
+	 * with a count for each block of 2^log2 columns they fall in.
+	 */
+	default void visitRow(int x, int y, int log2, long bits) {
+		int blockY = y >> log2;
+		while (bits != 0) {
+			int blockX = (x + Long.numberOfTrailingZeros(bits)) >> log2;
+			//the bits up to where the next block starts
+			long end = (((long) blockX + 1) << log2) - x;
+			long block = end >= 64 ? bits : bits & ((1L << end) - 1);
+			visit(blockX, blockY, Long.bitCount(block));
+			bits &= ~block;
+		}
+	}
+}
@@ -0,0 +1,110 @@
+import java.util.Random;
+
+/**
+ * Checks the "Bounded" and "Torus" boards of {@link DenseBoardEngine} against a plain
+ * simulation that counts the neighbours of every cell one by one.
+ * <p>
+ * Usage: java BoardCheck [max width] [generations]<br>
+ * For every width from 1 to max width (200 if not given), a few heights and several rules, fills
+ * a board of each kind with random cells and steps it alongside the plain simulation for the
+ * given number of generations (30 if not given), comparing every cell after every step. On a
+ * torus narrower or lower than three cells a neighbour can be the same cell more than once, or
+ * the cell itself, and is counted each time, as the wrapped board does.
+ * @author Dirglehurbleherb
+ */
+public class BoardCheck {
+	private static final int[] HEIGHTS = {1, 2, 3, 7, 64, 65};
+	private static final String[] RULES = {"B3/S23", "B36/S23", "B2/S", "B3678/S34678"};
+
+	public static void main(String[] args) {
+		int maxWidth = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+		int generations = args.length > 1 ? Integer.parseInt(args[1]) : 30;
+		Random random = new Random(42);
+		int boards = 0;
+		int failures = 0;
+		for (int width = 1; width <= maxWidth; width++) {
+			for (int height : HEIGHTS) {
+				for (String rulestring : RULES) {
+					for (boolean torus : new boolean[] {false, true}) {
+						boards++;
+						if (!check(width, height, Rule.parse(rulestring), torus, generations, random)) {
+							failures++;
+						}
+					}
+				}
+			}
+		}
+		System.out.println(boards + " boards checked, " + failures + " disagreed");
+	}
+
+	/**
+	 * @return true if the board agreed with the plain simulation for every generation
+	 */
+	private static boolean check(int width, int height, Rule rule, boolean torus, int generations, Random random) {
+		DenseBoardEngine engine = DenseBoardEngine.onHeap(width, height, torus);
+		engine.setRule(rule);
+		//the board's top left cell is at (-(width / 2), -(height / 2))
+		int left = -(width / 2);
+		int top = -(height / 2);
+		boolean[][] cells = new boolean[height][width];
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				cells[y][x] = random.nextBoolean();
+				engine.setAlive(left + x, top + y, cells[y][x]);
+			}
+		}
+		for (int generation = 1; generation <= generations; generation++) {
+			cells = step(cells, rule, torus);
+			engine.step();
+			long population = 0;
+			for (int y = 0; y < height; y++) {
+				for (int x = 0; x < width; x++) {
+					if (engine.isAlive(left + x, top + y) != cells[y][x]) {
+						System.out.println((torus ? "Torus " : "Bounded ") + width + "x" + height + " " + rule
+								+ ": cell (" + x + ", " + y + ") wrong at generation " + generation);
+						return false;
+					}
+					population += cells[y][x] ? 1 : 0;
+				}
+			}
+			if (engine.getPopulation() != population) {
+				System.out.println((torus ? "Torus " : "Bounded ") + width + "x" + height + " " + rule
+						+ ": population " + engine.getPopulation() + " instead of " + population
+						+ " at generation " + generation);
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean[][] step(boolean[][] cells, Rule rule, boolean torus) {
+		int height = cells.length;
+		int width = cells[0].length;
+		boolean[][] next = new boolean[height][width];
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				int neighbours = 0;
+				for (int dy = -1; dy <= 1; dy++) {
+					for (int dx = -1; dx <= 1; dx++) {
+						if (dx == 0 && dy == 0) {
+							continue;
+						}
+						int nx = x + dx;
+						int ny = y + dy;
+						if (torus) {
+							nx = Math.floorMod(nx, width);
+							ny = Math.floorMod(ny, height);
+						} else if (nx < 0 || nx >= width || ny < 0 || ny >= height) {
+							continue;
+						}
+						if (cells[ny][nx]) {
+							neighbours++;
+						}
+					}
+				}
+				next[y][x] = cells[y][x] ? rule.survives(neighbours) : rule.isBorn(neighbours);
+			}
+		}
+		return next;
+	}
+}
@@ -20,29 +20,47 @@ import javafx.scene.shape.StrokeType;
 public class Cell extends Rectangle {
 
 	//	private static ColorOption defaultOption = new ColorOption("Lifespan",Color.YELLOW, Color.GREEN, Color.BLUE, Color.RED);
-	private int lifespan = 0;
-	private Game game;
+	private int age;
+	private int neighbours;
+	private boolean dying;
+	private int gridX;
+	private int gridY;
+	/** Position of the Cell in the list of nodes it is displayed in, kept by CellBuffer. */
+	private int index;
+	/** Lifespan colour for each age, fading from yellow until it settles on purple. */
+	private static final List<Color> lifespanColours = createLifespanColours();
 	private static Color custom = Color.DARKSALMON;
 	private static String colorName = "Custom";
 
 	/**
 	 * Constructor for the cell class
-	 * @param game the Game object the cell has a reference to.
 	 * @param cellSize the width and height of the cell
-	 * @param x for x pos
-	 * @param y for y pos
+	 * @param gridX for the column of the cell in the game
+	 * @param gridY for the row of the cell in the game
 	 */
-	public Cell(Game game, int cellSize, double x, double y) {
+	public Cell(int cellSize, int gridX, int gridY) {
 		super(cellSize, cellSize);
-		setTranslateX(x);
-		setTranslateY(y);
-		this.game = game;
+		setTranslateX(gridX * (double) cellSize);
+		setTranslateY(gridY * (double) cellSize);
+		this.gridX = gridX;
+		this.gridY = gridY;
 		setStroke(Color.WHITE);
 		setStrokeType(StrokeType.INSIDE);
 		setStrokeWidth(cellSize*0.05);
 		this.setFill(custom);
 	}
 
+	/**
+	 * Moves the cell to another grid position, so that a Cell whose cell has died
+	 * can be reused for one that is born.
+	 */
+	public void moveTo(int cellSize, int gridX, int gridY) {
+		setTranslateX(gridX * (double) cellSize);
+		setTranslateY(gridY * (double) cellSize);
+		this.gridX = gridX;
+		this.gridY = gridY;
+	}
+
 	/**
      *  Shows the logic of Conways Game of Life. Cells that are born appear yellow,
      *  cells that will die in the next generation appear red
@@ -50,12 +68,30 @@ public class Cell extends Rectangle {
      *  All other live cells slowly transition in colour until they eventually stabilise and become purple. 
      */	
 	public void colourRuleLifespan() {
-		int neighbours = this.game.getNumNeighbours(this.getTranslateX(),this.getTranslateY());
+		this.setFill(lifespanColour(age, dying));
+	}
+
+	private static Color lifespanColour(int age, boolean dying) {
+		if(age == 0) {
+			return Color.YELLOW; //Made from green 1.0 and red 1.0, (blue is 0.0).
+		} else if (!dying) {
+			//engines that do not track ages report a negative age, show those cells as settled
+			int index = age < 0 || age >= lifespanColours.size() ? lifespanColours.size() - 1 : age;
+			return lifespanColours.get(index);
+		} else {
+			return Color.RED;
+		}
+	}
 
-		if(lifespan == 1 || lifespan == 0) {
-			this.setFill(Color.YELLOW); //Made from green 1.0 and red 1.0, (blue is 0.0).
-		} else if (neighbours == 2 || neighbours == 3) {
-			Color currentColour = (Color)getFill();
+	/**
+	 * Works out the Lifespan colours once, from yellow at age 0, by fading
+	 * the colour a step each generation until it stops changing.
+	 */
+	private static List<Color> createLifespanColours() {
+		List<Color> colours = new ArrayList<Color>();
+		Color currentColour = Color.YELLOW;
+		colours.add(currentColour);
+		while (true) {
 			double red = currentColour.getRed();
 			double green = currentColour.getGreen();
 			double blue = currentColour.getBlue();
@@ -80,9 +116,12 @@ public class Cell extends Rectangle {
 
 				}
 			}
-			this.setFill(Color.color(red, green, blue));
-		} else {
-			this.setFill(Color.RED);//NEVER GETS HERE SO POSSIBLY REDUNDANT? NO RED DESPITE VIGOROUS TESTING!!
+			Color nextColour = Color.color(red, green, blue);
+			if (nextColour.equals(currentColour)) {
+				return colours;
+			}
+			colours.add(nextColour);
+			currentColour = nextColour;
 		}
 	}
 
@@ -101,26 +140,27 @@ public class Cell extends Rectangle {
      * and so on up to the maximum number of 8 neighbours).
      */	
 	public void colourRuleNeighbours() {
-		int neighbours = this.game.getNumNeighbours(this.getTranslateX(),this.getTranslateY());
 		//System.out.println(getTranslateX() + " " + getTranslateY() + " "  + lifespan + " " + neighbours);
-		this.setFill(Color.YELLOW);
-		if(neighbours == 1) {
-			this.setFill(Color.YELLOW);
-		} else if (neighbours == 2) { 
-			this.setFill(Color.DARKORANGE);
+		this.setFill(neighboursColour(neighbours));
+	}
+
+	private static Color neighboursColour(int neighbours) {
+		if (neighbours == 2) { 
+			return Color.DARKORANGE;
 		}else if (neighbours == 3){
-			this.setFill(Color.RED);
-		}if(neighbours == 4) {
-			this.setFill(Color.BROWN);
+			return Color.RED;
+		}else if(neighbours == 4) {
+			return Color.BROWN;
 		} else if (neighbours == 5) { 
-			this.setFill(Color.PURPLE);
+			return Color.PURPLE;
 		}else if (neighbours == 6){
-			this.setFill(Color.BLUEVIOLET);
+			return Color.BLUEVIOLET;
 		} else if (neighbours == 7) { 
-			this.setFill(Color.BLUE);
+			return Color.BLUE;
 		}else if (neighbours == 8){
-			this.setFill(Color.MAGENTA);
+			return Color.MAGENTA;
 		}
+		return Color.YELLOW;
 	}
 
 	/**
@@ -129,36 +169,61 @@ public class Cell extends Rectangle {
      * as these are the background colours.
      */	
 	public void colourRuleRandom(){
+		this.setFill(randomColour(gridX, gridY, age));
+	}
 
-		double red = Math.random();
-		double green = Math.random();
-		double blue = Math.random();
+	/**
+	 * Picks the colour from the cell's position and age rather than afresh each time,
+	 * so that a cell keeps its colour while it is redrawn within a generation.
+	 */
+	private static Color randomColour(int gridX, int gridY, int age) {
+		long hash = (CellKey.pack(gridX, gridY) + age) * 0x9E3779B97F4A7C15L;
+		hash ^= hash >>> 29;
+		hash *= 0xBF58476D1CE4E5B9L;
+		double red = ((hash >>> 40) & 0xFF) / 255.0;
+		double green = ((hash >>> 48) & 0xFF) / 255.0;
+		double blue = (hash >>> 56) / 255.0;
 
-		if((red != 0.0 && green !=0.0 && blue != 0.0)||((red != 1.0 && green !=1.0 && blue != 1.0))){
-			this.setFill(Color.color(red, green, blue));
+		if((red == 0.0 && green == 0.0 && blue == 0.0)||((red == 1.0 && green == 1.0 && blue == 1.0))){
+			return Color.GREY;
 		}
+		return Color.color(red, green, blue);
 	}
-	public void update() {
-		lifespan++;
+	/**
+	 * Takes on the state the engine recorded for this cell in the last step, then recolours.
+	 * @param age generations the cell has been alive, negative if not known
+	 * @param neighbours number of live neighbours
+	 * @param dying true if the cell will die in the next generation
+	 */
+	public void update(int age, int neighbours, boolean dying) {
+		this.age = age;
+		this.neighbours = neighbours;
+		this.dying = dying;
 		updateColor();
-
 	}
 
 	public void updateColor() {
+		this.setFill(colourOf(gridX, gridY, age, neighbours, dying));
+	}
+
+	/**
+	 * Works out the colour the current colour rule gives a cell, for Cells and for
+	 * anything else that draws cells (see CellRenderer).
+	 * @param age generations the cell has been alive, negative if not known
+	 * @param neighbours number of live neighbours
+	 * @param dying true if the cell will die in the next generation
+	 */
+	public static Color colourOf(int gridX, int gridY, int age, int neighbours, boolean dying) {
 
 		//		colourRuleLifespan();
 		if(colorName.equals("Lifespan")) {
-			colourRuleLifespan();
+			return lifespanColour(age, dying);
 		}else if(colorName.equals("Random")) {
-			colourRuleRandom();
+			return randomColour(gridX, gridY, age);
 		}else if(colorName.equals("Neighbours")) {
-			colourRuleNeighbours();
-		}else if(colorName.equals("Custom")) {
-			this.setFill(custom);
-		} else {
-			System.out.println("No colours selected.");
+			return neighboursColour(neighbours);
 		}
-
+		return custom;
 	}
 	/**
 	 * Returns a list of all color options for use in a dropbox
@@ -187,6 +252,22 @@ public class Cell extends Rectangle {
 		return new Position(getTranslateX(), getTranslateY());
 	}
 
+	public int getIndex() {
+		return index;
+	}
+
+	public void setIndex(int index) {
+		this.index = index;
+	}
+
+	/**
+	 * @return false if the current colour rule gives every cell the same colour,
+	 * so that a cell's age and neighbours do not need to be kept up to date
+	 */
+	public static boolean isStateColoured() {
+		return !colorName.equals("Custom");
+	}
+
 	public static Color getCustom() {
 		return custom;
 	}
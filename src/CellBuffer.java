@@ -0,0 +1,231 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Holds the Cell nodes that display the live cells of a {@link Game}.
+ * <p>
+ * The game only knows grid positions; this class keeps one Cell per live cell, keyed by its
+ * packed grid position (see {@link CellKey}), so that a cell which survives keeps its Cell
+ * and only born cells get a new one. Each Cell is coloured from the age and neighbour count
+ * the engine recorded for it, which are handed over while the buffer is brought up to date.
+ * <p>
+ * The front and back buffers are swapped by reference, and the Cells of cells that have died go
+ * into a pool that births take from, so once the population has settled a refresh allocates
+ * next to nothing.
+ * <p>
+ * After a single step the Cells can instead be brought up to date from the game's births and
+ * deaths alone (see {@link #applyChanges}), which touches only the Cells that changed.
+ * <p>
+ * Only the cells in view get a Cell (see {@link #setView}); the engine is asked for those
+ * alone, so the work and the number of nodes follow what is on screen, not the population.
+ * @author Dirglehurbleherb
+ */
+public class CellBuffer {
+	private LongCellMap<Cell> currentBuffer = new LongCellMap<Cell>();
+	private LongCellMap<Cell> backBuffer = new LongCellMap<Cell>();
+	/** Cells of dead cells, kept for reuse; never more than there are live cells. */
+	private final ArrayDeque<Cell> pool = new ArrayDeque<Cell>();
+	/** The live cells' Cells, rebuilt in place on each refresh. */
+	private final List<Cell> cells = new ArrayList<Cell>();
+	private Game game;
+	private int cellSize;
+	//grid positions of the cells in view, inclusive
+	private int minX = Integer.MIN_VALUE;
+	private int minY = Integer.MIN_VALUE;
+	private int maxX = Integer.MAX_VALUE;
+	private int maxY = Integer.MAX_VALUE;
+
+	//the update under way
+	private Rule rule;
+	private List<? super Cell> displayed;
+	private final List<Cell> born = new ArrayList<Cell>();
+	private final CellChangeVisitor changeApplier = this::applyChange;
+	private final CellStateVisitor stateUpdater = this::updateState;
+	private final CellStateVisitor cellPlacer = this::placeCell;
+
+	/**
+	 * @param game the game whose cells are displayed
+	 * @param cellSize the width and height in pixels of each Cell
+	 */
+	public CellBuffer(Game game, int cellSize) {
+		this.game = game;
+		this.cellSize = cellSize;
+		refresh();
+	}
+
+	/** Getter for the Cells of the live cells. The collection changes on the next refresh. */
+	public Collection<Cell> getCells() {
+		return Collections.unmodifiableList(cells);
+	}
+
+	/**
+	 * Sets the area in view, in the coordinates the Cells are placed in, so that from the next
+	 * refresh on only the cells that are at least partly inside it get a Cell.
+	 */
+	public void setView(double left, double top, double right, double bottom) {
+		minX = gridOf(left);
+		minY = gridOf(top);
+		maxX = gridOf(right);
+		maxY = gridOf(bottom);
+	}
+
+	/** The grid position of the Cell covering a coordinate, kept within the int grid. */
+	private int gridOf(double coordinate) {
+		return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, Math.floor(coordinate / cellSize)));
+	}
+
+	private boolean inView(int gridX, int gridY) {
+		return gridX >= minX && gridX <= maxX && gridY >= minY && gridY <= maxY;
+	}
+
+	/**
+	 * Brings the Cells of the cells in view in line with the game and recolours them,
+	 * after it has advanced a generation or a pattern has been placed or removed.
+	 * <p>
+	 * A surviving cell's Cell is taken out of the current buffer as it is carried to the back
+	 * buffer, so whatever is left in the current buffer afterwards belongs to cells that died.
+	 */
+	public void refresh() {
+		rule = game.getRule();
+		cells.clear();
+		game.forEachLiveStateIn(minX, minY, maxX, maxY, cellPlacer);
+		swapBuffers();
+	}
+
+	/**
+	 * Brings the Cells in line with a snapshot of the game instead, while the game is played on
+	 * another thread, the same way refresh does. Cells the snapshot holds outside the view are left out.
+	 */
+	public void refresh(GenerationSnapshot snapshot) {
+		rule = snapshot.getRule();
+		cells.clear();
+		snapshot.forEachLiveState(cellPlacer);
+		swapBuffers();
+	}
+
+	private void placeCell(int gridX, int gridY, int age, int neighbours) {
+		if (!inView(gridX, gridY)) {
+			return;
+		}
+		long key = CellKey.pack(gridX, gridY);
+		Cell cell = currentBuffer.remove(key);
+		if (cell == null) {
+			cell = pool.pollLast();
+			if (cell == null) {
+				cell = new Cell(cellSize, gridX, gridY);
+			} else {
+				cell.moveTo(cellSize, gridX, gridY);
+			}
+		}
+		cell.update(age, neighbours, !rule.survives(neighbours));
+		cell.setIndex(cells.size());
+		backBuffer.put(key, cell);
+		cells.add(cell);
+	}
+
+	/** Pools the Cells of the cells that died, up to as many as are alive, and makes the back buffer current. */
+	private void swapBuffers() {
+		for (int slot = 0; slot < currentBuffer.capacity() && pool.size() < cells.size(); slot++) {
+			if (currentBuffer.isUsed(slot)) {
+				pool.addLast(currentBuffer.valueAt(slot));
+			}
+		}
+		while (pool.size() > cells.size()) {
+			pool.pollLast();
+		}
+		currentBuffer.clear();
+		LongCellMap<Cell> swap = currentBuffer;
+		currentBuffer = backBuffer;
+		backBuffer = swap;
+	}
+
+	/**
+	 * Brings the Cells in line with the game after it has stepped one generation since the last
+	 * refresh or applyChanges, from the cells it says were born and died. The same changes are
+	 * made to nodes, the list the Cells are displayed in, which has to hold the Cells of getCells()
+	 * in the same order. Surviving cells are only visited to recolour them, and not at all if the
+	 * colour rule gives every cell the same colour. Births out of view are left out, as in refresh.
+	 * <p>
+	 * The Cell of a cell that died is replaced in both lists by the last one, so that it comes out
+	 * without the rest shifting along, and the Cells of births are added at the end in one go.
+	 * @return false if the game could not say what changed, in which case nothing has been
+	 * done and refresh has to be used
+	 */
+	public boolean applyChanges(List<? super Cell> nodes) {
+		born.clear();
+		displayed = nodes;
+		boolean applied = game.forEachChange(changeApplier);
+		displayed = null;
+		if (!applied) {
+			return false;
+		}
+		for (Cell cell : born) {
+			cell.setIndex(cells.size());
+			cells.add(cell);
+		}
+		nodes.addAll(born);
+		born.clear();
+		if (Cell.isStateColoured()) {
+			updateColors();
+		}
+		return true;
+	}
+
+	private void applyChange(int gridX, int gridY, boolean alive) {
+		long key = CellKey.pack(gridX, gridY);
+		if (alive) {
+			if (!inView(gridX, gridY)) {
+				return;
+			}
+			Cell cell = pool.pollLast();
+			if (cell == null) {
+				cell = new Cell(cellSize, gridX, gridY);
+			} else {
+				cell.moveTo(cellSize, gridX, gridY);
+			}
+			cell.updateColor();
+			currentBuffer.put(key, cell);
+			born.add(cell);
+			return;
+		}
+		Cell cell = currentBuffer.remove(key);
+		if (cell == null) {
+			return;
+		}
+		int last = cells.size() - 1;
+		Cell moved = cells.remove(last);
+		displayed.remove(last);
+		if (cell != moved) {
+			cells.set(cell.getIndex(), moved);
+			displayed.set(cell.getIndex(), moved);
+			moved.setIndex(cell.getIndex());
+		}
+		if (pool.size() < cells.size()) {
+			pool.addLast(cell);
+		}
+	}
+
+	private void updateState(int gridX, int gridY, int age, int neighbours) {
+		Cell cell = currentBuffer.get(CellKey.pack(gridX, gridY));
+		if (cell != null) {
+			cell.update(age, neighbours, !rule.survives(neighbours));
+		}
+	}
+
+	/** Lets go of every Cell, e.g. while the cells are drawn some other way. The next refresh makes them again. */
+	public void clear() {
+		currentBuffer.clear();
+		backBuffer.clear();
+		pool.clear();
+		cells.clear();
+	}
+
+	/** Recolours every Cell from the state the engine recorded for it, e.g. after the colour rule has changed. */
+	public void updateColors() {
+		rule = game.getRule();
+		game.forEachLiveStateIn(minX, minY, maxX, maxY, stateUpdater);
+	}
+}
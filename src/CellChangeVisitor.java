@@ -0,0 +1,14 @@
+/**
+ * Callback used by a {@link LifeEngine} to report the cells that changed in the last step.
+ * @author Dirglehurbleherb
+ */
+public interface CellChangeVisitor {
+
+	/**
+	 * Called once for each cell that was born or died.
+	 * @param x column of the cell
+	 * @param y row of the cell
+	 * @param born true if the cell was born, false if it died
+	 */
+	void visit(int x, int y, boolean born);
+}
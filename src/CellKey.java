@@ -0,0 +1,53 @@
+/**
+ * Packs integer grid coordinates into a single long so that cells can be stored
+ * in primitive collections without allocating a Position for every lookup.
+ * <p>
+ * The x coordinate is held in the high 32 bits and the y coordinate in the low 32 bits.
+ * @author Dirglehurbleherb
+ */
+public final class CellKey {
+
+	/** Column and row offsets of the 8 cells surrounding a cell. */
+	public static final int[] NEIGHBOUR_DX = {-1, 0, 1, -1, 1, -1, 0, 1};
+	public static final int[] NEIGHBOUR_DY = {-1, -1, -1, 0, 0, 1, 1, 1};
+
+	private CellKey() {
+	}
+
+	/**
+	 * Packs a grid coordinate into a key.
+	 * @param x column of the cell
+	 * @param y row of the cell
+	 * @return the packed key
+	 */
+	public static long pack(int x, int y) {
+		return ((long) x << 32) | (y & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * @param key a packed key
+	 * @return the column stored in the key
+	 */
+	public static int x(long key) {
+		return (int) (key >> 32);
+	}
+
+	/**
+	 * @param key a packed key
+	 * @return the row stored in the key
+	 */
+	public static int y(long key) {
+		return (int) key;
+	}
+
+	/**
+	 * Returns the key of the cell offset from the given key, without unpacking it into a Position.
+	 * @param key a packed key
+	 * @param dx columns to move by
+	 * @param dy rows to move by
+	 * @return the packed key of the offset cell
+	 */
+	public static long offset(long key, int dx, int dy) {
+		return pack(x(key) + dx, y(key) + dy);
+	}
+}
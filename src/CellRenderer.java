@@ -0,0 +1,264 @@
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+import javafx.scene.image.ImageView;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+
+/**
+ * Draws the live cells of a {@link Game} as pixels, instead of keeping a Cell node for each
+ * of them, so that the scene graph stays the same size however many cells there are.
+ * <p>
+ * The cells are painted into an int array of ARGB pixels the size of the view, straight from
+ * the engine's cell states, and the array is copied into a WritableImage through its PixelWriter
+ * in one go. Cells are coloured by the same colour rules as Cells (see {@link Cell#colourOf}),
+ * with the same white border, and anything that is not a cell is left transparent so the
+ * background shows through.
+ * <p>
+ * Only the cells in view are visited (see {@link LifeEngine#forEachLiveStateIn}), and nothing
+ * is allocated while drawing but the {@link ViewArea}; the pixel arrays and image are only replaced
+ * when the view changes size. While the game is played on another thread, the cells are drawn from
+ * the {@link GenerationSnapshot}s it hands over instead.
+ * <p>
+ * Cells narrower than {@value #DETAIL_PIXELS} pixels are too small to tell apart, so the view
+ * becomes a map of how dense the cells are instead: the grid is cut into the smallest square
+ * blocks that are at least a pixel wide, the engine reports the population of each block in
+ * view (see {@link LifeEngine#forEachBlock}), and each block is painted in the custom cell
+ * colour, more opaque the more of it is alive. The cost then follows the number of pixels
+ * rather than the number of cells, however far out the view is.
+ * @author Dirglehurbleherb
+ */
+public class CellRenderer extends ImageView implements CellStateVisitor, BlockVisitor {
+	/** Cells narrower than this many pixels are drawn as a density map. */
+	public static final double DETAIL_PIXELS = 3;
+	/** Largest blocks of the density map, 2^30 cells across, which keeps their corners in the int grid. */
+	private static final int MAX_BLOCK_LOG2 = 30;
+	/** Opacity of a block with a single live cell, so that sparse areas still show up. */
+	private static final int MIN_DENSITY_ALPHA = 64;
+	private static final int BORDER_COLOUR = argb(Color.WHITE);
+	/** Border width as a fraction of the cell width, as for Cells. */
+	private static final double BORDER = 0.05;
+
+	private final PixelFormat<IntBuffer> format = PixelFormat.getIntArgbInstance();
+	private WritableImage image;
+	private int[] pixels = new int[0];
+	/** Populations of the blocks in view, a row of blocks at a time. */
+	private int[] blockPopulations = new int[0];
+	private int width;
+	private int height;
+
+	//the drawing under way
+	private Rule rule;
+	private double originX;
+	private double originY;
+	private double cellPixels;
+	private int border;
+	private Color lastColour;
+	private int lastArgb;
+	//the density map under way
+	private int log2;
+	private int minBlockX;
+	private int minBlockY;
+	private boolean drawingBlocks;
+	/** How much larger the blocks drawn are than the blocks visited, as a power of two. */
+	private int shift;
+	private int blocksAcross;
+	private int blocksDown;
+
+	public CellRenderer() {
+		setMouseTransparent(true);
+	}
+
+	/**
+	 * Sets the size of the view in pixels; the cells have to be drawn again afterwards.
+	 */
+	public void setSize(int width, int height) {
+		width = Math.max(1, width);
+		height = Math.max(1, height);
+		if (width == this.width && height == this.height) {
+			return;
+		}
+		this.width = width;
+		this.height = height;
+		pixels = new int[width * height];
+		//blocks are at least a pixel wide, so there are at most two more across and down than pixels
+		blockPopulations = new int[(width + 2) * (height + 2)];
+		image = new WritableImage(width, height);
+		setImage(image);
+	}
+
+	/**
+	 * The part of the grid in view when the cell at grid position (x, y) covers the square
+	 * cellPixels wide whose top left corner is at (originX + x * cellPixels, originY + y * cellPixels),
+	 * by the block if the cells are narrower than DETAIL_PIXELS.
+	 */
+	public ViewArea viewArea(double originX, double originY, double cellPixels) {
+		int blockLog2 = ViewArea.CELLS;
+		if (cellPixels < DETAIL_PIXELS) {
+			//the smallest blocks that are at least a pixel wide
+			blockLog2 = 0;
+			while (blockLog2 < MAX_BLOCK_LOG2 && cellPixels * (1 << blockLog2) < 1) {
+				blockLog2++;
+			}
+		}
+		return new ViewArea(gridOf(-originX, cellPixels), gridOf(-originY, cellPixels), gridOf(width - originX, cellPixels),
+				gridOf(height - originY, cellPixels), blockLog2);
+	}
+
+	/**
+	 * Draws every live cell of the game in view (see {@link #viewArea}).
+	 * Cells narrower than DETAIL_PIXELS are drawn as a density map.
+	 */
+	public void draw(Game game, double originX, double originY, double cellPixels) {
+		if (image == null) {
+			return;
+		}
+		ViewArea area = viewArea(originX, originY, cellPixels);
+		begin(game.getRule(), area, originX, originY, cellPixels);
+		if (area.isCells()) {
+			//only the cells in view are asked for, so drawing costs what is on screen rather than the whole population
+			game.forEachLiveStateIn(area.getMinX(), area.getMinY(), area.getMaxX(), area.getMaxY(), this);
+		} else {
+			game.forEachBlock(log2, minBlockX, minBlockY, minBlockX + blocksAcross - 1, minBlockY + blocksDown - 1, this);
+		}
+		finish();
+	}
+
+	/**
+	 * Draws a snapshot of a game the way the game itself is drawn. The snapshot was captured for
+	 * the view as it was then, which may have been scrolled or zoomed since: what it holds is drawn
+	 * where it falls now, and whatever it did not capture is left empty until the next snapshot.
+	 */
+	public void draw(GenerationSnapshot snapshot, double originX, double originY, double cellPixels) {
+		if (image == null) {
+			return;
+		}
+		ViewArea area = snapshot.getArea();
+		begin(snapshot.getRule(), area, originX, originY, cellPixels);
+		if (area.isCells()) {
+			snapshot.forEachLiveState(this);
+		} else {
+			snapshot.forEachBlock(this);
+		}
+		finish();
+	}
+
+	/**
+	 * Clears the pixels and gets ready to be visited by the cells or blocks of an area. Blocks are
+	 * added up at their own size, or at the size the view needs now if that is larger, so that
+	 * there are never more of them than blockPopulations holds.
+	 */
+	private void begin(Rule rule, ViewArea area, double originX, double originY, double cellPixels) {
+		Arrays.fill(pixels, 0);
+		this.rule = rule;
+		this.originX = originX;
+		this.originY = originY;
+		this.cellPixels = cellPixels;
+		drawingBlocks = !area.isCells();
+		if (drawingBlocks) {
+			ViewArea view = viewArea(originX, originY, cellPixels);
+			log2 = Math.max(area.getBlockLog2(), view.getBlockLog2());
+			shift = log2 - area.getBlockLog2();
+			minBlockX = view.getMinX() >> log2;
+			minBlockY = view.getMinY() >> log2;
+			blocksAcross = (view.getMaxX() >> log2) - minBlockX + 1;
+			blocksDown = (view.getMaxY() >> log2) - minBlockY + 1;
+			Arrays.fill(blockPopulations, 0, blocksAcross * blocksDown, 0);
+		} else {
+			border = cellPixels < DETAIL_PIXELS ? 0 : Math.max(1, (int) Math.round(cellPixels * BORDER));
+		}
+	}
+
+	/** Paints the blocks if there are any and copies the pixels into the image. */
+	private void finish() {
+		if (drawingBlocks) {
+			paintBlocks();
+		}
+		image.getPixelWriter().setPixels(0, 0, width, height, format, pixels, 0, width);
+	}
+
+	/** Paints each block in view that has live cells, more opaque the more of it is alive. */
+	private void paintBlocks() {
+		double blockPixels = cellPixels * (1 << log2);
+		int rgb = argbOf(Cell.getCustom()) & 0xFFFFFF;
+		double cells = (double) (1L << (2 * log2));
+		for (int row = 0; row < blocksDown; row++) {
+			for (int column = 0; column < blocksAcross; column++) {
+				int population = blockPopulations[row * blocksAcross + column];
+				if (population == 0) {
+					continue;
+				}
+				double left = originX + ((long) minBlockX + column) * blockPixels;
+				double top = originY + ((long) minBlockY + row) * blockPixels;
+				int x0 = (int) Math.floor(left);
+				int y0 = (int) Math.floor(top);
+				int x1 = Math.max(x0 + 1, (int) Math.floor(left + blockPixels));
+				int y1 = Math.max(y0 + 1, (int) Math.floor(top + blockPixels));
+				int alpha = MIN_DENSITY_ALPHA + (int) Math.round((255 - MIN_DENSITY_ALPHA) * Math.min(1, population / cells));
+				fill(x0, y0, x1, y1, alpha << 24 | rgb);
+			}
+		}
+	}
+
+	/** Adds to the population of a block in view; blocks outside it are left out. */
+	@Override
+	public void visit(int blockX, int blockY, long population) {
+		int column = (blockX >> shift) - minBlockX;
+		int row = (blockY >> shift) - minBlockY;
+		if (column < 0 || column >= blocksAcross || row < 0 || row >= blocksDown) {
+			return;
+		}
+		int i = row * blocksAcross + column;
+		blockPopulations[i] = (int) Math.min(Integer.MAX_VALUE, blockPopulations[i] + population);
+	}
+
+	/** The grid position covering a distance in pixels from cell (0, 0), kept within the int grid. */
+	private static int gridOf(double offset, double cellPixels) {
+		return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, Math.floor(offset / cellPixels)));
+	}
+
+	/** Paints one cell, clipped to the view. */
+	@Override
+	public void visit(int x, int y, int age, int neighbours) {
+		double left = originX + x * cellPixels;
+		double top = originY + y * cellPixels;
+		if (left >= width || top >= height || left + cellPixels <= 0 || top + cellPixels <= 0) {
+			return;
+		}
+		int x0 = (int) Math.floor(left);
+		int y0 = (int) Math.floor(top);
+		int x1 = Math.max(x0 + 1, (int) Math.floor(left + cellPixels));
+		int y1 = Math.max(y0 + 1, (int) Math.floor(top + cellPixels));
+		int colour = argbOf(Cell.colourOf(x, y, age, neighbours, !rule.survives(neighbours)));
+		fill(x0, y0, x1, y1, BORDER_COLOUR);
+		fill(x0 + border, y0 + border, x1 - border, y1 - border, colour);
+	}
+
+	private void fill(int x0, int y0, int x1, int y1, int colour) {
+		x0 = Math.max(x0, 0);
+		y0 = Math.max(y0, 0);
+		x1 = Math.min(x1, width);
+		y1 = Math.min(y1, height);
+		if (x0 >= x1) {
+			return;
+		}
+		for (int row = y0; row < y1; row++) {
+			Arrays.fill(pixels, row * width + x0, row * width + x1, colour);
+		}
+	}
+
+	/** Colour rules mostly hand back the same few Colors, so the last one converted is remembered. */
+	private int argbOf(Color colour) {
+		if (colour != lastColour) {
+			lastColour = colour;
+			lastArgb = argb(colour);
+		}
+		return lastArgb;
+	}
+
+	private static int argb(Color colour) {
+		return (int) Math.round(colour.getOpacity() * 255) << 24 | (int) Math.round(colour.getRed() * 255) << 16
+				| (int) Math.round(colour.getGreen() * 255) << 8 | (int) Math.round(colour.getBlue() * 255);
+	}
+}
@@ -0,0 +1,17 @@
+/**
+ * Callback used by a {@link LifeEngine} to report live cells together with the state
+ * the engine recorded for them during the last step.
+ * @author Dirglehurbleherb
+ */
+public interface CellStateVisitor {
+
+	/**
+	 * Called once for each live cell.
+	 * @param x column of the cell
+	 * @param y row of the cell
+	 * @param age generations the cell has been alive, 0 for a cell born in the last step,
+	 * or {@link LifeEngine#UNKNOWN_AGE} if the engine does not track ages
+	 * @param neighbours number of live neighbours the cell has
+	 */
+	void visit(int x, int y, int age, int neighbours);
+}
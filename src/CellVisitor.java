@@ -0,0 +1,13 @@
+/**
+ * Callback used by a {@link LifeEngine} to report live cells without building a collection of them.
+ * @author Dirglehurbleherb
+ */
+public interface CellVisitor {
+
+	/**
+	 * Called once for each live cell.
+	 * @param x column of the cell
+	 * @param y row of the cell
+	 */
+	void visit(int x, int y);
+}
@@ -0,0 +1,255 @@
+/**
+ * Spots when a universe has settled into a cycle: the same cells every p generations,
+ * possibly moved by (dx, dy), as with a still life (p = 1), a blinker (p = 2) or a lone
+ * glider (p = 4, moving one cell diagonally).
+ * <p>
+ * The live cells are summarised by a hash and by the sums of their x and y coordinates.
+ * Both are updated as cells are born and die, so nothing is recomputed from scratch.
+ * The hash adds up A^x * B^y for every live cell modulo the prime 2^61 - 1.
+ * Moving every cell by (dx, dy) multiplies it by A^dx * B^dy, and a population of n moved
+ * by (dx, dy) has coordinate sums n*dx and n*dy larger. So for each recent generation with
+ * the same population the displacement can be worked out from the sums and checked against
+ * the hash.
+ * <p>
+ * The summaries of the last {@value #HISTORY} generations are kept, which bounds the period
+ * that can be found. A match only counts as a cycle once it has held for a whole period.
+ * @author Dirglehurbleherb
+ */
+public class CycleDetector implements CellChangeVisitor {
+	static final int HISTORY = 1024;
+	private static final long MODULUS = (1L << 61) - 1;
+	private static final long A = 0x1B873593CC9E2D51L % MODULUS;
+	private static final long B = 0x0D3F84A5E6546B64L % MODULUS;
+	/** Exponents are offset by 2^31 so that every int coordinate gives a non-negative one. */
+	private static final long OFFSET = 1L << 31;
+	private static final long[][] POWERS_OF_A = powerTable(A);
+	private static final long[][] POWERS_OF_B = powerTable(B);
+	private static final long A_OFFSET_INVERSE = power(power(A, OFFSET), MODULUS - 2);
+	private static final long B_OFFSET_INVERSE = power(power(B, OFFSET), MODULUS - 2);
+
+	private long hash;
+	private long population;
+	private long sumX;
+	private long sumY;
+	//engines report changes a row at a time, so the last row's power is kept
+	private int lastY;
+	private long lastYPower = powerOf(POWERS_OF_B, 0);
+
+	//ring buffer of summaries, indexed by generation % HISTORY
+	private final long[] hashes = new long[HISTORY];
+	private final long[] populations = new long[HISTORY];
+	private final long[] sumsX = new long[HISTORY];
+	private final long[] sumsY = new long[HISTORY];
+	/** Generations recorded since the last reset. */
+	private long generation;
+
+	//a match waiting to hold for a whole period, and then the cycle itself
+	private int period;
+	private long dx;
+	private long dy;
+	private int confirmations;
+	private boolean cycling;
+
+	/**
+	 * Forgets the history and any cycle and summarises the engine's live cells afresh,
+	 * e.g. after cells have been edited or the rule has changed.
+	 */
+	public void reset(LifeEngine engine) {
+		generation = 0;
+		period = 0;
+		confirmations = 0;
+		cycling = false;
+		summarise(engine);
+		record();
+	}
+
+	/**
+	 * Summarises the engine's live cells afresh without touching the history,
+	 * for engines that cannot report the cells that changed in a step.
+	 */
+	public void summarise(LifeEngine engine) {
+		hash = 0;
+		population = 0;
+		sumX = 0;
+		sumY = 0;
+		engine.forEachLive((x, y) -> visit(x, y, true));
+	}
+
+	/** Updates the summary for a cell that was born or died. */
+	@Override
+	public void visit(int x, int y, boolean born) {
+		if (y != lastY) {
+			lastY = y;
+			lastYPower = powerOf(POWERS_OF_B, y);
+		}
+		long term = mulMod(powerOf(POWERS_OF_A, x), lastYPower);
+		if (born) {
+			hash = addMod(hash, term);
+			population++;
+			sumX += x;
+			sumY += y;
+		} else {
+			hash = addMod(hash, MODULUS - term);
+			population--;
+			sumX -= x;
+			sumY -= y;
+		}
+	}
+
+	/**
+	 * Records the summary of the generation just reached, once all its changes have been visited,
+	 * and looks for a cycle ending in it. A cycle already found is checked again, so that one
+	 * broken by something outside the rule, such as the edge of a bounded board, is dropped.
+	 * @return true if the universe is known to be cycling
+	 */
+	public boolean endGeneration() {
+		generation++;
+		record();
+		if (period > 0) {
+			if (matches(generation - period, dx, dy)) {
+				if (++confirmations >= period) {
+					cycling = true;
+				}
+				return cycling;
+			}
+			period = 0;
+			cycling = false;
+		}
+		findMatch();
+		return cycling;
+	}
+
+	private void record() {
+		int slot = (int) (generation % HISTORY);
+		hashes[slot] = hash;
+		populations[slot] = population;
+		sumsX[slot] = sumX;
+		sumsY[slot] = sumY;
+	}
+
+	/** Looks back through the history for the most recent generation that this one is a copy of. */
+	private void findMatch() {
+		long oldest = Math.max(0, generation - HISTORY + 1);
+		for (long earlier = generation - 1; earlier >= oldest; earlier--) {
+			int slot = (int) (earlier % HISTORY);
+			if (populations[slot] != population) {
+				continue;
+			}
+			long moveX = 0;
+			long moveY = 0;
+			if (population > 0) {
+				long differenceX = sumX - sumsX[slot];
+				long differenceY = sumY - sumsY[slot];
+				if (differenceX % population != 0 || differenceY % population != 0) {
+					continue;
+				}
+				moveX = differenceX / population;
+				moveY = differenceY / population;
+			}
+			if (matches(earlier, moveX, moveY)) {
+				period = (int) (generation - earlier);
+				dx = moveX;
+				dy = moveY;
+				confirmations = 1;
+				cycling = confirmations >= period;
+				return;
+			}
+		}
+	}
+
+	/** True if the current generation is the recorded one moved by (moveX, moveY). */
+	private boolean matches(long earlier, long moveX, long moveY) {
+		if (earlier < 0 || earlier <= generation - HISTORY) {
+			return false;
+		}
+		int slot = (int) (earlier % HISTORY);
+		if (populations[slot] != population || sumsX[slot] + moveX * population != sumX
+				|| sumsY[slot] + moveY * population != sumY) {
+			return false;
+		}
+		if (moveX < Integer.MIN_VALUE || moveX > Integer.MAX_VALUE || moveY < Integer.MIN_VALUE || moveY > Integer.MAX_VALUE) {
+			return false;
+		}
+		long shift = mulMod(mulMod(powerOf(POWERS_OF_A, (int) moveX), A_OFFSET_INVERSE),
+				mulMod(powerOf(POWERS_OF_B, (int) moveY), B_OFFSET_INVERSE));
+		return mulMod(hashes[slot], shift) == hash;
+	}
+
+	public boolean isCycling() {
+		return cycling;
+	}
+
+	/**
+	 * @return the number of generations in the cycle, or 0 if no cycle has been found
+	 */
+	public int getPeriod() {
+		return cycling ? period : 0;
+	}
+
+	/** @return how far the cells move across in each period of the cycle */
+	public long getDx() {
+		return cycling ? dx : 0;
+	}
+
+	/** @return how far the cells move down in each period of the cycle */
+	public long getDy() {
+		return cycling ? dy : 0;
+	}
+
+	/*Arithmetic modulo 2^61 - 1.*/
+
+	private static long addMod(long a, long b) {
+		long sum = a + b;
+		return sum >= MODULUS ? sum - MODULUS : sum;
+	}
+
+	/** Reduces a non-negative long below 2^63 modulo 2^61 - 1. */
+	private static long reduce(long value) {
+		long folded = (value & MODULUS) + (value >>> 61);
+		return folded >= MODULUS ? folded - MODULUS : folded;
+	}
+
+	static long mulMod(long a, long b) {
+		//split into 31 bit halves so every partial product fits in a long; 2^61 is 1 modulo 2^61 - 1,
+		//and the folded partial products add up to less than 2^63
+		long aHigh = a >>> 31;
+		long aLow = a & 0x7FFFFFFFL;
+		long bHigh = b >>> 31;
+		long bLow = b & 0x7FFFFFFFL;
+		long middle = aHigh * bLow + aLow * bHigh;
+		return reduce((aHigh * bHigh << 1) + (middle >>> 30) + ((middle & 0x3FFFFFFFL) << 31) + aLow * bLow);
+	}
+
+	private static long power(long base, long exponent) {
+		long result = 1;
+		long square = base;
+		while (exponent > 0) {
+			if ((exponent & 1) != 0) {
+				result = mulMod(result, square);
+			}
+			square = mulMod(square, square);
+			exponent >>>= 1;
+		}
+		return result;
+	}
+
+	/** table[k][i] is base^(i * 2048^k), so base^e is a product of one entry per 11 bits of e. */
+	private static long[][] powerTable(long base) {
+		long[][] table = new long[3][2048];
+		for (int k = 0; k < 3; k++) {
+			long step = power(base, 1L << (11 * k));
+			table[k][0] = 1;
+			for (int i = 1; i < 2048; i++) {
+				table[k][i] = mulMod(table[k][i - 1], step);
+			}
+		}
+		return table;
+	}
+
+	/** base^(coordinate + 2^31) from the base's table. */
+	private static long powerOf(long[][] table, int coordinate) {
+		long exponent = coordinate + OFFSET;
+		return mulMod(mulMod(table[0][(int) (exponent & 0x7FF)], table[1][(int) ((exponent >>> 11) & 0x7FF)]),
+				table[2][(int) (exponent >>> 22)]);
+	}
+}
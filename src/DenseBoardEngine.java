@@ -0,0 +1,455 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Engine for a fixed-size width x height board. The board is either bounded, with the cells
+ * outside it always dead, or a torus, where the left edge wraps round to the right and the
+ * top to the bottom.
+ * <p>
+ * The board is kept as two bitplanes, the current generation and the next, with one bit per
+ * cell packed 64 to a long like a {@link TiledEngine} row. The planes are single contiguous
+ * arrays, either long[] on the heap or buffers outside it: direct buffers, or a memory-mapped
+ * file. Off the heap a board of billions of cells costs the garbage collector nothing, and a
+ * file-backed board can be saved and reopened without reading it back in.
+ * <p>
+ * Each row of a plane is followed by a padding word, and the plane starts with a padding word and
+ * a padding row and ends with a padding row. On a bounded board the padding is never written, so
+ * the words just off every edge read as dead cells. On a torus the padding, and the spare bits of
+ * the last word of each row, are filled from the opposite edges before each step. Either way the
+ * kernel itself needs no edge checks.
+ * <p>
+ * The board is centred on the origin, covering columns -width/2 to width - width/2 - 1
+ * and the same for rows, so patterns placed around (0, 0) land in the middle.
+ * <p>
+ * A file holds a {@value #HEADER_BYTES} byte header followed by both planes. A mapped buffer can
+ * hold at most 2GB, so each plane is mapped separately, which allows up to about 1.7 x 10^10
+ * cells per board.
+ * @author Dirglehurbleherb
+ */
+public class DenseBoardEngine implements LifeEngine, Closeable {
+	private static final long MAGIC = 0x4C49464542524431L; //"LIFEBRD1"
+	static final int HEADER_BYTES = 64;
+	private static final int MAX_RULE_BYTES = 32;
+	//header layout
+	private static final int WIDTH_AT = 8;
+	private static final int HEIGHT_AT = 12;
+	private static final int CURRENT_AT = 16;
+	private static final int TORUS_AT = 20;
+	private static final int POPULATION_AT = 24;
+	private static final int RULE_LENGTH_AT = 32;
+	private static final int RULE_AT = 36;
+
+	private final int width;
+	private final int height;
+	private final boolean torus;
+	private final int originX;
+	private final int originY;
+	/** Data words in each row. */
+	private final int words;
+	/** Longs from the start of one row to the start of the next, including the padding word. */
+	private final int stride;
+	/** Bits of the last word of each row that are on the board. */
+	private final long lastWordMask;
+	private final LongBuffer[] planes = new LongBuffer[2];
+	private int current;
+	private long population;
+	private Rule rule = Rule.CONWAY;
+
+	//only set for a file-backed board
+	private FileChannel channel;
+	private ByteBuffer header;
+	private final MappedByteBuffer[] mappedPlanes = new MappedByteBuffer[2];
+
+	private DenseBoardEngine(int width, int height, boolean torus) {
+		if (width <= 0 || height <= 0) {
+			throw new IllegalArgumentException("Board must be at least 1x1, not " + width + "x" + height);
+		}
+		this.width = width;
+		this.height = height;
+		this.torus = torus;
+		this.originX = -(width / 2);
+		this.originY = -(height / 2);
+		this.words = (width + 63) >>> 6;
+		this.stride = words + 1;
+		this.lastWordMask = (width & 63) == 0 ? -1L : (1L << width) - 1;
+		if (planeLongs() > Integer.MAX_VALUE / 8) {
+			throw new IllegalArgumentException("Board of " + width + "x" + height + " is too large");
+		}
+	}
+
+	/** Longs in one plane: a padding word, then a padding row, the board rows and another padding row. */
+	private long planeLongs() {
+		return 1 + (height + 2L) * stride;
+	}
+
+	/**
+	 * Creates an empty board held in long arrays on the heap.
+	 * @param torus true for a board whose edges wrap round, false for one surrounded by dead cells
+	 */
+	public static DenseBoardEngine onHeap(int width, int height, boolean torus) {
+		DenseBoardEngine engine = new DenseBoardEngine(width, height, torus);
+		for (int i = 0; i < 2; i++) {
+			engine.planes[i] = LongBuffer.wrap(new long[(int) engine.planeLongs()]);
+		}
+		return engine;
+	}
+
+	/**
+	 * Creates an empty board held in direct buffers outside the Java heap.
+	 * @param torus true for a board whose edges wrap round, false for one surrounded by dead cells
+	 */
+	public static DenseBoardEngine allocate(int width, int height, boolean torus) {
+		DenseBoardEngine engine = new DenseBoardEngine(width, height, torus);
+		for (int i = 0; i < 2; i++) {
+			engine.planes[i] = ByteBuffer.allocateDirect((int) engine.planeLongs() * 8)
+					.order(ByteOrder.nativeOrder()).asLongBuffer();
+		}
+		return engine;
+	}
+
+	/**
+	 * Creates an empty board backed by a new memory-mapped file, replacing any file already there.
+	 * @param torus true for a board whose edges wrap round, false for one surrounded by dead cells
+	 * @throws IOException if the file cannot be created or mapped
+	 */
+	public static DenseBoardEngine create(Path file, int width, int height, boolean torus) throws IOException {
+		DenseBoardEngine engine = new DenseBoardEngine(width, height, torus);
+		engine.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+				StandardOpenOption.READ, StandardOpenOption.WRITE);
+		engine.map();
+		engine.header.putLong(0, MAGIC);
+		engine.header.putInt(WIDTH_AT, width);
+		engine.header.putInt(HEIGHT_AT, height);
+		engine.header.putInt(TORUS_AT, torus ? 1 : 0);
+		engine.writeHeader();
+		return engine;
+	}
+
+	/**
+	 * Reopens a board saved in a file by {@link #create}, mapping it rather than reading it in.
+	 * @throws IOException if the file cannot be read or is not a saved board
+	 */
+	public static DenseBoardEngine open(Path file) throws IOException {
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		DenseBoardEngine engine;
+		try {
+			ByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+			if (header.getLong(0) != MAGIC) {
+				throw new IOException(file + " is not a saved board");
+			}
+			engine = new DenseBoardEngine(header.getInt(WIDTH_AT), header.getInt(HEIGHT_AT), header.getInt(TORUS_AT) != 0);
+			engine.channel = channel;
+			engine.map();
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+		engine.current = engine.header.getInt(CURRENT_AT);
+		engine.population = engine.header.getLong(POPULATION_AT);
+		byte[] ruleBytes = new byte[Math.min(engine.header.getInt(RULE_LENGTH_AT), MAX_RULE_BYTES)];
+		for (int i = 0; i < ruleBytes.length; i++) {
+			ruleBytes[i] = engine.header.get(RULE_AT + i);
+		}
+		engine.rule = Rule.parse(new String(ruleBytes, StandardCharsets.US_ASCII));
+		return engine;
+	}
+
+	private void map() throws IOException {
+		header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+		long planeBytes = planeLongs() * 8;
+		for (int i = 0; i < 2; i++) {
+			mappedPlanes[i] = channel.map(FileChannel.MapMode.READ_WRITE, HEADER_BYTES + i * planeBytes, planeBytes);
+			planes[i] = mappedPlanes[i].order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+		}
+	}
+
+	private void writeHeader() {
+		header.putInt(CURRENT_AT, current);
+		header.putLong(POPULATION_AT, population);
+		byte[] ruleBytes = rule.toString().getBytes(StandardCharsets.US_ASCII);
+		header.putInt(RULE_LENGTH_AT, ruleBytes.length);
+		for (int i = 0; i < ruleBytes.length; i++) {
+			header.put(RULE_AT + i, ruleBytes[i]);
+		}
+	}
+
+	/**
+	 * Writes a file-backed board out to disk, so that {@link #open} will find it as it is now.
+	 * Does nothing for a board held in direct buffers.
+	 */
+	public void save() {
+		if (channel == null) {
+			return;
+		}
+		writeHeader();
+		mappedPlanes[current].force();
+		((MappedByteBuffer) header).force();
+	}
+
+	/**
+	 * Saves a file-backed board and closes its file. The engine must not be used afterwards.
+	 * The mapping itself is released when the engine is garbage collected.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (channel != null) {
+			save();
+			channel.close();
+		}
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	public boolean isTorus() {
+		return torus;
+	}
+
+	/** Index in a plane of the first word of board row r. */
+	private int rowStart(int r) {
+		return 1 + (r + 1) * stride;
+	}
+
+	/**
+	 * Steps one row at a time, sliding a window of three words along the row above, the row
+	 * itself and the row below. The padding words and rows supply dead cells at the edges.
+	 */
+	@Override
+	public void step() {
+		LongBuffer board = planes[current];
+		LongBuffer result = planes[1 - current];
+		if (torus) {
+			wrapEdges(board);
+		}
+		long nextPopulation = 0;
+		for (int r = 0; r < height; r++) {
+			int row = rowStart(r);
+			int above = row - stride;
+			int below = row + stride;
+			long aboveWest = board.get(above - 1);
+			long aboveWord = board.get(above);
+			long rowWest = board.get(row - 1);
+			long rowWord = board.get(row);
+			long belowWest = board.get(below - 1);
+			long belowWord = board.get(below);
+			for (int w = 0; w < words; w++) {
+				long aboveEast = board.get(above + w + 1);
+				long rowEast = board.get(row + w + 1);
+				long belowEast = board.get(below + w + 1);
+				long next = TiledEngine.nextRow(aboveWord, aboveWest, aboveEast,
+						rowWord, rowWest, rowEast,
+						belowWord, belowWest, belowEast, rule);
+				result.put(row + w, next);
+				nextPopulation += Long.bitCount(next);
+				aboveWest = aboveWord;
+				aboveWord = aboveEast;
+				rowWest = rowWord;
+				rowWord = rowEast;
+				belowWest = belowWord;
+				belowWord = belowEast;
+			}
+			//births just past the right-hand edge would land in the unused bits of the last word
+			long last = result.get(row + words - 1);
+			nextPopulation -= Long.bitCount(last & ~lastWordMask);
+			result.put(row + words - 1, last & lastWordMask);
+		}
+		current = 1 - current;
+		population = nextPopulation;
+	}
+
+	/**
+	 * Fills the halo around a torus with the cells from the opposite edges: the row above the board
+	 * with the bottom row, the row below with the top row, and for every row the cell just past the
+	 * right-hand end with its first cell and bit 63 of the word before it with its last cell.
+	 * The step clears the spare bits of each last word again, so the halo never shows outside it.
+	 */
+	private void wrapEdges(LongBuffer board) {
+		int lastWord = words - 1;
+		int spareBit = width & 63;
+		int lastCellWord = (width - 1) >>> 6;
+		int lastCellBit = (width - 1) & 63;
+		//when the row fills its last word the cell past the end is bit 0 of the padding word instead
+		long eastOfPrevious = 0;
+		for (int r = -1; r <= height; r++) {
+			int row = rowStart(r);
+			int source = rowStart(r < 0 ? height - 1 : r == height ? 0 : r);
+			long first = board.get(source) & 1;
+			long last = (board.get(source + lastCellWord) >>> lastCellBit) & 1;
+			if (r < 0 || r == height) {
+				for (int w = 0; w < words; w++) {
+					board.put(row + w, board.get(source + w));
+				}
+			}
+			if (spareBit != 0) {
+				board.put(row + lastWord, board.get(row + lastWord) & ((1L << spareBit) - 1) | first << spareBit);
+			}
+			board.put(row - 1, last << 63 | eastOfPrevious);
+			eastOfPrevious = spareBit == 0 ? first : 0;
+		}
+		board.put(rowStart(height) + words, eastOfPrevious);
+	}
+
+	/** On a torus the position is wrapped onto the board, otherwise cells off the board are dead. */
+	@Override
+	public boolean isAlive(int x, int y) {
+		long boardX = (long) x - originX;
+		long boardY = (long) y - originY;
+		if (torus) {
+			boardX = Math.floorMod(boardX, width);
+			boardY = Math.floorMod(boardY, height);
+		} else if (boardX < 0 || boardX >= width || boardY < 0 || boardY >= height) {
+			return false;
+		}
+		return (planes[current].get(rowStart((int) boardY) + (int) (boardX >>> 6)) & (1L << boardX)) != 0;
+	}
+
+	/**
+	 * On a torus the position is wrapped onto the board. On a bounded board cells off the board
+	 * cannot be brought to life, so setting one alive does nothing.
+	 */
+	@Override
+	public void setAlive(int x, int y, boolean alive) {
+		long boardX = (long) x - originX;
+		long boardY = (long) y - originY;
+		if (torus) {
+			boardX = Math.floorMod(boardX, width);
+			boardY = Math.floorMod(boardY, height);
+		} else if (boardX < 0 || boardX >= width || boardY < 0 || boardY >= height) {
+			return;
+		}
+		LongBuffer board = planes[current];
+		int index = rowStart((int) boardY) + (int) (boardX >>> 6);
+		long bit = 1L << boardX;
+		long word = board.get(index);
+		if (alive && (word & bit) == 0) {
+			board.put(index, word | bit);
+			population++;
+		} else if (!alive && (word & bit) != 0) {
+			board.put(index, word & ~bit);
+			population--;
+		}
+	}
+
+	@Override
+	public void forEachLive(CellVisitor visitor) {
+		LongBuffer board = planes[current];
+		for (int r = 0; r < height; r++) {
+			int row = rowStart(r);
+			for (int w = 0; w < words; w++) {
+				long bits = board.get(row + w);
+				while (bits != 0) {
+					visitor.visit(originX + (w << 6) + Long.numberOfTrailingZeros(bits), originY + r);
+					bits &= bits - 1;
+				}
+			}
+		}
+	}
+
+	@Override
+	public void forEachLiveIn(int minX, int minY, int maxX, int maxY, CellVisitor visitor) {
+		forEachWordIn(minX, minY, maxX, maxY, (x, y, bits) -> {
+			while (bits != 0) {
+				visitor.visit(x + Long.numberOfTrailingZeros(bits), y);
+				bits &= bits - 1;
+			}
+		});
+	}
+
+	/** Counts the cells of each word of the board in the blocks with bit counts. */
+	@Override
+	public void forEachBlock(int log2, int minBlockX, int minBlockY, int maxBlockX, int maxBlockY, BlockVisitor visitor) {
+		forEachWordIn(minBlockX << log2, minBlockY << log2, (int) (((maxBlockX + 1L) << log2) - 1),
+				(int) (((maxBlockY + 1L) << log2) - 1), (x, y, bits) -> visitor.visitRow(x, y, log2, bits));
+	}
+
+	/** Something done with the live cells of a word of a row, bit i standing for the cell at x + i. */
+	private interface WordAction {
+		void run(int x, int y, long bits);
+	}
+
+	/** Runs the action on the words of the board that overlap the area, with the cells outside it cleared. */
+	private void forEachWordIn(int minX, int minY, int maxX, int maxY, WordAction action) {
+		long first = Math.max(minX - (long) originX, 0);
+		long last = Math.min(maxX - (long) originX, width - 1L);
+		int firstRow = (int) Math.max(minY - (long) originY, 0);
+		int lastRow = (int) Math.min(maxY - (long) originY, height - 1L);
+		if (first > last || firstRow > lastRow) {
+			return;
+		}
+		int firstWord = (int) (first >> 6);
+		int lastWord = (int) (last >> 6);
+		long firstMask = -1L << (first & 63);
+		long lastMask = -1L >>> (63 - (last & 63));
+		LongBuffer board = planes[current];
+		for (int r = firstRow; r <= lastRow; r++) {
+			int row = rowStart(r);
+			for (int w = firstWord; w <= lastWord; w++) {
+				long bits = board.get(row + w) & (w == firstWord ? firstMask : -1L) & (w == lastWord ? lastMask : -1L);
+				if (bits != 0) {
+					action.run(originX + (w << 6), originY + r, bits);
+				}
+			}
+		}
+	}
+
+	/** After a step the other plane still holds the old generation, so the changes are the bits that differ. */
+	@Override
+	public boolean forEachChange(CellChangeVisitor visitor) {
+		LongBuffer board = planes[current];
+		LongBuffer old = planes[1 - current];
+		for (int r = 0; r < height; r++) {
+			int row = rowStart(r);
+			for (int w = 0; w < words; w++) {
+				long word = board.get(row + w);
+				//the old plane may still have a torus halo in the spare bits of its last word
+				long changed = (word ^ old.get(row + w)) & (w == words - 1 ? lastWordMask : -1L);
+				while (changed != 0) {
+					int i = Long.numberOfTrailingZeros(changed);
+					visitor.visit(originX + (w << 6) + i, originY + r, (word & (1L << i)) != 0);
+					changed &= changed - 1;
+				}
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public long getPopulation() {
+		return population;
+	}
+
+	@Override
+	public void clear() {
+		LongBuffer board = planes[current];
+		for (int r = 0; r < height; r++) {
+			int row = rowStart(r);
+			for (int w = 0; w < words; w++) {
+				board.put(row + w, 0);
+			}
+		}
+		population = 0;
+	}
+
+	@Override
+	public void setRule(Rule rule) {
+		this.rule = rule;
+	}
+
+	@Override
+	public Rule getRule() {
+		return rule;
+	}
+}
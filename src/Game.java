@@ -1,212 +1,531 @@
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collection;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Class to for creating Game object.
+ * <p>
+ * Game is the simulation only: it has no JavaFX dependencies and works in integer grid
+ * coordinates, so it can be run headless (see HeadlessRunner). The UI draws whatever
+ * forEachLive reports.
  * @author DirgleHurbleHerb
  *
  */
 
 public class Game {
-	private Map<Position, Cell> currentBuffer = new HashMap<Position, Cell>();
-	private Map<Position, Cell> backBuffer = new HashMap<Position, Cell>();
-	private int cellSize;
+	private static final int DEFAULT_BOARD_SIZE = 256;
+	private LifeEngine engine;
+	private String engineName;
+	private int boardWidth = DEFAULT_BOARD_SIZE;
+	private int boardHeight = DEFAULT_BOARD_SIZE;
+	private Rule rule = Rule.CONWAY;
 	private Map<String, List<int[]>> patterns;
+	private final CycleDetector cycleDetector = new CycleDetector();
+	private boolean detectCycles = true;
+	/** Set when cells have been changed other than by stepping, so the detector has to start again. */
+	private boolean cellsEdited = true;
+	/** Set when cells have been changed since the last step, so its births and deaths no longer tell what is alive. */
+	private boolean editedSinceStep = true;
+	private boolean feedDetector;
+	private final CellChangeVisitor changeCounter = this::countChange;
+
+	//stats, kept up to date as the game steps
+	private long generation;
+	private long births = GameStats.UNKNOWN;
+	private long deaths = GameStats.UNKNOWN;
+	private final LiveBounds bounds = new LiveBounds();
+	/** Set when cells have changed in ways the bounds have not followed, so they have to be found again. */
+	private boolean boundsStale = true;
+
+	/**
+	 * Constructor for the game using the sparse engine.
+	 */
+	public Game() {
+		this("Sparse");
+	}
 
 	/**
-	 * Constructor for the game.
-	 * @param cellSize
-	 * cellSize is the length of width and height of each Cell object.
+	 * Constructor for the game using a named engine.
+	 * @param engineName
+	 * one of the names returned by getEngineNames().
 	 */
-	public Game(int cellSize) {
-		this.cellSize = cellSize;
+	public Game(String engineName) {
+		this(engineName, DEFAULT_BOARD_SIZE, DEFAULT_BOARD_SIZE);
+	}
+
+	/**
+	 * Constructor for the game using a named engine, with the size of the board
+	 * used by the "Bounded" and "Torus" engines.
+	 * @param engineName
+	 * one of the names returned by getEngineNames().
+	 * @param boardWidth columns of the board
+	 * @param boardHeight rows of the board
+	 */
+	public Game(String engineName, int boardWidth, int boardHeight) {
+		this.engineName = engineName;
+		this.boardWidth = boardWidth;
+		this.boardHeight = boardHeight;
+		this.engine = createEngine(engineName);
 		parsePatterns();
 		defineInitialPattern();
-		
-		//Test getDeadNeighbours method.
-		getDeadNeighbours(100,100);
 	}
 
-	/** Getter for currentBuffer */
-	public Collection<Cell> getCurrentBuffer() {
+	/**
+	 * Constructor for a game on an engine that has already been set up, e.g. a
+	 * DenseBoardEngine reopened from a file. The engine keeps its cells and rule.
+	 */
+	public Game(LifeEngine engine) {
+		this.engineName = engine.getClass().getSimpleName();
+		this.engine = engine;
+		this.rule = engine.getRule();
+		parsePatterns();
+	}
+
+	/**
+	 * Returns the names of the available engines for use in a dropbox.
+	 * "Bounded" and "Torus" run on a fixed-size board, the others on an unbounded plane.
+	 */
+	public static List<String> getEngineNames() {
+		return Arrays.asList("Sparse", "Tiled", "Parallel", "Vector", "HashLife", "Bounded", "Torus");
+	}
 
-		return currentBuffer.values();
+	private LifeEngine createEngine(String engineName) {
+		if (engineName.equals("Sparse")) {
+			return new SparseEngine();
+		} else if (engineName.equals("Tiled")) {
+			return new TiledEngine();
+		} else if (engineName.equals("Parallel")) {
+			return new TiledEngine(ForkJoinPool.commonPool());
+		} else if (engineName.equals("Vector")) {
+			return new TiledEngine(null, true);
+		} else if (engineName.equals("HashLife")) {
+			return new HashLifeEngine();
+		} else if (engineName.equals("Bounded")) {
+			return DenseBoardEngine.onHeap(boardWidth, boardHeight, false);
+		} else if (engineName.equals("Torus")) {
+			return DenseBoardEngine.onHeap(boardWidth, boardHeight, true);
+		}
+		throw new IllegalArgumentException("Unknown engine: " + engineName);
 	}
 
 	/**
-	 * update method first checks the Cells and then swaps the buffers.
-	 * update method calls checkCells method and swapbuffer methods.
-	 * checkCells checks if the cell will live or die and checks 
-	 * swapBuffer creates a copy of backBuffer and sets it into currentBuffer. 
-	 * Then backBuffer is cleared.
+	 * Switches to the named engine, carrying the live cells across.
+	 * Cells that are off the board are lost when switching to "Bounded",
+	 * and wrap round onto it when switching to "Torus".
 	 */
-	public void update() {
-		//defineInitialPattern();//remove for production
-		checkCells();
-		swapBuffers();
-		updateCells();
-	}
-	public void updateCells() {
-		for(Cell cell:currentBuffer.values()) {
-			cell.update();
+	public void setEngine(String engineName) {
+		if (engineName.equals(this.engineName)) {
+			return;
 		}
+		replaceEngine(engineName);
+	}
+
+	private void replaceEngine(String engineName) {
+		LifeEngine newEngine = createEngine(engineName);
+		newEngine.setRule(rule);
+		engine.forEachLive((x, y) -> newEngine.setAlive(x, y, true));
+		engine = newEngine;
+		this.engineName = engineName;
+		noteEdit();
+	}
+
+	public String getEngineName() {
+		return engineName;
 	}
 
 	/**
-	 * swapBuffer puts backBuffer into currentBuffer.
-	 * It does this by creating a copy of backBuffer and sets it into currentBuffer. 
-	 * Then backBuffer is cleared.
+	 * Sets the size of the board used by the "Bounded" and "Torus" engines, e.g. "256x256",
+	 * rebuilding the board straight away if one of them is running.
+	 * @throws IllegalArgumentException if the size is not two positive numbers separated by an x
 	 */
-	public void swapBuffers() {
-		currentBuffer.clear();
-		currentBuffer.putAll(backBuffer);
-		backBuffer.clear();
+	public void setBoardSize(String size) {
+		int[] dimensions = parseSize(size);
+		int width = dimensions[0];
+		int height = dimensions[1];
+		int oldWidth = boardWidth;
+		int oldHeight = boardHeight;
+		boardWidth = width;
+		boardHeight = height;
+		if (engineName.equals("Bounded") || engineName.equals("Torus")) {
+			try {
+				replaceEngine(engineName);
+			} catch (IllegalArgumentException e) {
+				//too large a board, keep the one that is running
+				boardWidth = oldWidth;
+				boardHeight = oldHeight;
+				throw e;
+			}
+		}
 	}
 
 	/**
-	 * getNumNeightbours gets Number of neighbours surrounding a cell 
-	 * and returns this number. 
-	 * @param x
-	 * Cell x position is passed in.
-	 * @param y
-	 * Cell y position is passed in
-	 * @return
-	 * This int value is the number of neighbours surrounding the given Cell.
+	 * Parses a size such as "256x256" into its width and height.
+	 * @throws IllegalArgumentException if the size is not two positive numbers separated by an x
 	 */
-	public int getNumNeighbours(double x,double y) {
+	public static int[] parseSize(String size) {
+		String[] dimensions = size.trim().toLowerCase().split("x");
+		int width;
+		int height;
+		try {
+			width = Integer.parseInt(dimensions[0].trim());
+			height = dimensions.length == 2 ? Integer.parseInt(dimensions[1].trim()) : -1;
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Size should be WxH, not " + size);
+		}
+		if (width <= 0 || height <= 0) {
+			throw new IllegalArgumentException("Size should be WxH, not " + size);
+		}
+		return new int[] {width, height};
+	}
 
-		int totalNeighbours = 0;
+	/**
+	 * @return the size of the board used by the "Bounded" and "Torus" engines, as WxH
+	 */
+	public String getBoardSize() {
+		return boardWidth + "x" + boardHeight;
+	}
 
-		/**create list to store cell's neighbouring positions.*/
-		List<Position> neighbourPos = new ArrayList<Position>();
-
-		/**construct 8 positions to check around cell in double [] format
-		Top row.*/
-		Position leftTopPos = new Position (x-cellSize, y-cellSize);
-		Position topPos = new Position (x, y-cellSize);
-		Position rightTopPos = new Position (x+cellSize, y-cellSize);
-		/**Middle row.*/
-		Position leftPos = new Position (x-cellSize, y);
-		Position rightPos = new Position (x+cellSize, y);
-		/**Bottom row.*/
-		Position leftBottomPos = new Position (x-cellSize, y+cellSize);
-		Position bottomPos = new Position (x, y+cellSize);
-		Position rightBottomPos = new Position (x+cellSize, y+cellSize);
-
-		/**adding all 8 positions into the ArrayList neighbourPos.*/
-		neighbourPos.addAll(Arrays.asList(leftTopPos,leftPos,leftBottomPos,
-				topPos,bottomPos,rightTopPos, rightPos,rightBottomPos));
-
-		/**ask currentBuffer what is in that position in currentBuffer*/
-		for(Position pos : neighbourPos) {						
-			if(currentBuffer.containsKey(pos)) {
-				totalNeighbours++;
+	/**
+	 * Sets the birth/survival rule, e.g. "B3/S23" for Conway's Game of Life or "B36/S23" for HighLife.
+	 * @throws IllegalArgumentException if the rulestring cannot be parsed
+	 */
+	public void setRule(String rulestring) {
+		rule = Rule.parse(rulestring);
+		engine.setRule(rule);
+		cellsEdited = true;
+	}
+
+	public Rule getRule() {
+		return rule;
+	}
+
+	/**
+	 * update method advances the game by one generation.
+	 */
+	public void update() {
+		engine.step();
+		generation++;
+		editedSinceStep = false;
+		countChanges();
+	}
+
+	/**
+	 * Calls the visitor for every cell that was born or died in the last generation stepped,
+	 * so that a display can be brought up to date from it rather than redrawn.
+	 * @return false, without calling the visitor, if the changes are not known because
+	 * cells have been edited since or the engine cannot report them
+	 */
+	public boolean forEachChange(CellChangeVisitor visitor) {
+		return !editedSinceStep && engine.forEachChange(visitor);
+	}
+
+	/** Notes that cells have been changed other than by stepping. */
+	private void noteEdit() {
+		cellsEdited = true;
+		editedSinceStep = true;
+		boundsStale = true;
+	}
+
+	/**
+	 * Goes through the cells born and died in the step just taken, counting them and
+	 * feeding them to the cycle detector. Once a cycle has been found there is no need
+	 * to keep hashing until the cells are edited.
+	 */
+	private void countChanges() {
+		births = 0;
+		deaths = 0;
+		feedDetector = detectCycles && !cellsEdited && !isCycling();
+		if (!engine.forEachChange(changeCounter)) {
+			births = GameStats.UNKNOWN;
+			deaths = GameStats.UNKNOWN;
+			boundsStale = true;
+			if (feedDetector) {
+				cycleDetector.summarise(engine);
 			}
 		}
+		if (detectCycles && cellsEdited) {
+			cycleDetector.reset(engine);
+			cellsEdited = false;
+		} else if (feedDetector) {
+			cycleDetector.endGeneration();
+		}
+	}
 
-		return totalNeighbours;
-	}	
-	
-	/** Checks all cells, by getting neighbours and num of neighbours
-	 * recursion magic happens here */
-	public void checkCells() {
-		
-		//Iterate through the currentBuffer map to check each alive cell.
-		//Once checked, the position of the dead neighbour is added to the checkedDead list.
-		List<Position> checkedDead = new ArrayList<Position>();
-		for (Position cellPos: currentBuffer.keySet()) {
-
-			//Get the list of dead neighbours around the cell.
-			List<Position> deadNeighbours = getDeadNeighbours(cellPos.getX(),cellPos.getY());
-			//Iterate through the cell's deadNeighbours list to check whether it should be born.
-			String deadCellPositions = "";
-			for (Position deadCellPos: deadNeighbours) {
-				if (!checkedDead.contains(deadCellPos) && getNumNeighbours(deadCellPos.getX(),deadCellPos.getY())==3){
-					//Cell is born.
-					createCell(deadCellPos.getX(),deadCellPos.getY());
-				}
-				checkedDead.add(deadCellPos);
-				deadCellPositions += +deadCellPos.getX()+","+deadCellPos.getY()+"  ";
-			}
-			
-			//Check self to see if it should remain alive or die.
-			if (getNumNeighbours(cellPos.getX(),cellPos.getY()) == 2 || getNumNeighbours(cellPos.getX(),cellPos.getY()) == 3) {
-				//Cell remains alive. Added to back buffer within createCell method.
-				backBuffer.put(cellPos, currentBuffer.get(cellPos));
-			} 
+	private void countChange(int x, int y, boolean born) {
+		if (born) {
+			births++;
+		} else {
+			deaths++;
+		}
+		if (boundsStale) {
+			//found again from the live cells when next asked for
+		} else if (!bounds.isCounted()) {
+			boundsStale = true;
+		} else if (born) {
+			bounds.add(x, y);
+		} else {
+			bounds.remove(x, y);
+		}
+		if (feedDetector) {
+			cycleDetector.visit(x, y, born);
+		}
+	}
+
+	/**
+	 * Advances by the given number of generations.
+	 * <p>
+	 * The generations are stepped one at a time while watching for a cycle. Once the universe
+	 * is cycling, the rest is worked out directly: the generations left over from a whole number
+	 * of periods are stepped and the cells moved along by the distance they cover in the others.
+	 * The HashLife engine, or any engine with cycle detection turned off, advances in one call
+	 * inside the engine instead.
+	 * <p>
+	 * The last generation is always stepped on its own, so that its births and deaths are counted.
+	 * @throws ArithmeticException if a moving cycle or a HashLife jump would carry cells off the int grid
+	 */
+	public void advance(long generations) {
+		if (generations <= 0) {
+			return;
+		}
+		if (engine instanceof HashLifeEngine) {
+			engine.advance(generations);
+			generation += generations;
+			births = GameStats.UNKNOWN;
+			deaths = GameStats.UNKNOWN;
+			noteEdit();
+			return;
+		}
+		if (!detectCycles) {
+			advanceUncounted(generations - 1);
+			update();
+			return;
+		}
+		long remaining = generations;
+		while (remaining > 0 && !isCycling()) {
+			update();
+			remaining--;
+		}
+		if (remaining > 0) {
+			skipCycles(remaining);
+		}
+	}
+
+	/** Steps the engine without looking at the changes. */
+	private void advanceUncounted(long generations) {
+		engine.advance(generations);
+		generation += generations;
+		boundsStale = true;
+	}
 
+	/**
+	 * Advances a cycling universe without stepping through its whole periods.
+	 */
+	private void skipCycles(long generations) {
+		int period = cycleDetector.getPeriod();
+		//leave at least the last generation to be stepped
+		long periods = (generations - 1) / period;
+		long moveX;
+		long moveY;
+		if (engine instanceof DenseBoardEngine) {
+			//the board repeats every width by height cells, so only the periods left over from whole laps matter
+			DenseBoardEngine board = (DenseBoardEngine) engine;
+			moveX = (periods % board.getWidth()) * cycleDetector.getDx() % board.getWidth();
+			moveY = (periods % board.getHeight()) * cycleDetector.getDy() % board.getHeight();
+		} else {
+			moveX = Math.multiplyExact(periods, cycleDetector.getDx());
+			moveY = Math.multiplyExact(periods, cycleDetector.getDy());
 		}
+		if (moveX != 0 || moveY != 0) {
+			moveCells(moveX, moveY);
+		}
+		generation += periods * period;
+		advanceUncounted(generations - periods * period - 1);
+		update();
+	}
 
+	/**
+	 * Moves every live cell by (moveX, moveY).
+	 * @throws ArithmeticException if any cell would end up off the int grid, in which case none are moved
+	 */
+	private void moveCells(long moveX, long moveY) {
+		GameStats stats = getStats();
+		if (stats.isEmpty()) {
+			return;
+		}
+		//compared this way round so that a move near the long range cannot overflow
+		if (moveX < (long) Integer.MIN_VALUE - stats.getMinX() || moveX > (long) Integer.MAX_VALUE - stats.getMaxX()
+				|| moveY < (long) Integer.MIN_VALUE - stats.getMinY() || moveY > (long) Integer.MAX_VALUE - stats.getMaxY()) {
+			throw new ArithmeticException("Moving the cells by (" + moveX + ", " + moveY
+					+ ") would carry them off the int grid");
+		}
+		List<int[]> cells = new ArrayList<int[]>();
+		engine.forEachLive((x, y) -> cells.add(new int[] {(int) (x + moveX), (int) (y + moveY)}));
+		engine.clear();
+		for (int[] cell : cells) {
+			engine.setAlive(cell[0], cell[1], true);
+		}
+		editedSinceStep = true;
+		boundsStale = true;
+	}
 
+	/**
+	 * Turns the cycle detection used by update and advance on or off. It is on by default.
+	 */
+	public void setCycleDetection(boolean detectCycles) {
+		this.detectCycles = detectCycles;
+		cellsEdited = true;
 	}
 
-	/** Returns a list of dead neighbours in arrays
-	 * 
-	 * @param x
-	 * 
-	 * @param y
-	 * 
-	 * @return
-	 * 
+	/**
+	 * @return true if the universe has been seen to repeat, possibly moved along, and
+	 * cycle detection is on
 	 */
-	public List<Position> getDeadNeighbours(double x, double y){
-
-		//Search currentBuffer map using cell position as key.		
-		List<Position> checkedDeadNeighbours = new ArrayList<Position>();
-		double cellX = x;
-		double cellY = y;
-		Position key = new Position (cellX,cellY);
-
-		//Check the neighbour to the left.
-		key.setX(key.getX()-cellSize);
-		if (!currentBuffer.containsKey(key)) {
-			Position position = new Position (key.getX(),key.getY());
-			checkedDeadNeighbours.add(position);
+	public boolean isCycling() {
+		if (!detectCycles || cellsEdited || !cycleDetector.isCycling()) {
+			return false;
 		}
-		//Check the 3 neighbours above from left to right.
-		key.setY(key.getY()-cellSize);
-		for (int i = 0; i < 3; i++) {
-			if (!currentBuffer.containsKey(key)) {
-				Position position = new Position (key.getX(),key.getY());
-				checkedDeadNeighbours.add(position);
-			}
-			if (i != 2) {
-				key.setX(key.getX()+cellSize);
+		if (engine instanceof DenseBoardEngine && !((DenseBoardEngine) engine).isTorus()) {
+			//a pattern moving across a bounded board will hit the edge
+			return cycleDetector.getDx() == 0 && cycleDetector.getDy() == 0;
+		}
+		return true;
+	}
+
+	/**
+	 * @return the number of generations after which the universe repeats, or 0 if it is not cycling
+	 */
+	public int getCyclePeriod() {
+		return isCycling() ? cycleDetector.getPeriod() : 0;
+	}
+
+	/** @return how far the cells move across in each period of the cycle */
+	public long getCycleDx() {
+		return isCycling() ? cycleDetector.getDx() : 0;
+	}
+
+	/** @return how far the cells move down in each period of the cycle */
+	public long getCycleDy() {
+		return isCycling() ? cycleDetector.getDy() : 0;
+	}
+
+	/**
+	 * @return the number of generations stepped since the game started or was cleared
+	 */
+	public long getGeneration() {
+		return generation;
+	}
+
+	/**
+	 * Returns the generation, population, births and deaths of the last generation and the
+	 * bounding box of the live cells. They are all counted as the game steps. The bounding box
+	 * only has to be found again from the live cells after cells have been edited or the engine
+	 * could not report its changes, and the HashLife engine finds it from its quadtree.
+	 */
+	public GameStats getStats() {
+		if (boundsStale) {
+			findBounds();
+		}
+		return new GameStats(generation, engine.getPopulation(), births, deaths,
+				bounds.getMinX(), bounds.getMinY(), bounds.getMaxX(), bounds.getMaxY());
+	}
+
+	private void findBounds() {
+		if (engine instanceof HashLifeEngine) {
+			int[] found = ((HashLifeEngine) engine).getBounds();
+			if (found == null) {
+				bounds.clear();
+			} else {
+				bounds.set(found[0], found[1], found[2], found[3]);
 			}
+		} else {
+			bounds.recount(engine);
 		}
-		//Check the neighbour to the right.
-		key.setY(key.getY()+cellSize);
-		if (!currentBuffer.containsKey(key)) {
-			Position position = new Position (key.getX(),key.getY());
+		boundsStale = false;
+	}
 
-			checkedDeadNeighbours.add(position);
+	/**
+	 * Advances by 2^log2 generations, counting them as advance does. The HashLife engine jumps
+	 * there in one call; other engines step or skip cycles as advance does.
+	 * @throws IllegalArgumentException if log2 is not from 0 to 62, beyond which 2^log2 is not a positive long
+	 * @throws ArithmeticException if the jump would carry cells off the int grid
+	 */
+	public void advancePowerOfTwo(int log2) {
+		if (log2 < 0 || log2 >= Long.SIZE - 1) {
+			throw new IllegalArgumentException("Cannot advance 2^" + log2 + " generations");
 		}
-		//Check the 3 neighbours below from right to left.
-		key.setY( key.getY()+ cellSize);
+		advance(1L << log2);
+	}
+
+	/**
+	 * Calls the visitor with the grid position of every live cell.
+	 */
+	public void forEachLive(CellVisitor visitor) {
+		engine.forEachLive(visitor);
+	}
+
+	/**
+	 * Calls the visitor with the grid position, age and neighbour count of every live cell,
+	 * as recorded by the engine during the last step.
+	 */
+	public void forEachLiveState(CellStateVisitor visitor) {
+		engine.forEachLiveState(visitor);
+	}
+
+	/**
+	 * As forEachLiveState, for the live cells from (minX, minY) to (maxX, maxY) inclusive only,
+	 * e.g. those in view.
+	 */
+	public void forEachLiveStateIn(int minX, int minY, int maxX, int maxY, CellStateVisitor visitor) {
+		engine.forEachLiveStateIn(minX, minY, maxX, maxY, visitor);
+	}
+
+	/**
+	 * Reports how many live cells there are in each block of 2^log2 by 2^log2 cells in the range of blocks,
+	 * as described by {@link LifeEngine#forEachBlock}.
+	 */
+	public void forEachBlock(int log2, int minBlockX, int minBlockY, int maxBlockX, int maxBlockY, BlockVisitor visitor) {
+		engine.forEachBlock(log2, minBlockX, minBlockY, maxBlockX, maxBlockY, visitor);
+	}
 
-		for (int i = 0; i < 3; i++) {
-			if (!currentBuffer.containsKey(key)) {
-				Position position = new Position (key.getX(),key.getY());
+	public boolean isAlive(int x, int y) {
+		return engine.isAlive(x, y);
+	}
+
+	/**
+	 * @return the number of live cells
+	 */
+	public long getPopulation() {
+		return engine.getPopulation();
+	}
 
-				checkedDeadNeighbours.add(position);
+	/**
+	 * getNumNeightbours gets Number of neighbours surrounding a cell 
+	 * and returns this number. 
+	 * @param x
+	 * Cell column is passed in.
+	 * @param y
+	 * Cell row is passed in
+	 * @return
+	 * This int value is the number of neighbours surrounding the given Cell.
+	 */
+	public int getNumNeighbours(int x, int y) {
+		int totalNeighbours = 0;
+		for (int i = 0; i < CellKey.NEIGHBOUR_DX.length; i++) {
+			if (engine.isAlive(x + CellKey.NEIGHBOUR_DX[i], y + CellKey.NEIGHBOUR_DY[i])) {
+				totalNeighbours++;
 			}
-			key.setX(key.getX()-cellSize);
 		}
-		
-
-		return checkedDeadNeighbours;
+		return totalNeighbours;
 	}
 	
 	/** creates cell */
-	public void createCell(double x, double y) {
-		Cell cell = new Cell(this, cellSize, x, y);
-		backBuffer.put(new Position(x,y), cell);
+	public void createCell(int x, int y) {
+		engine.setAlive(x, y, true);
+		noteEdit();
 	}
 	
 	public int[] findPatternDimensions(String patternName) {
@@ -260,41 +579,49 @@ public class Game {
 		return rotatedPattern;
 	}
 	
-	/** Places cells in a defined pattern. Adds it to the lastPatternAdded field*/
-	public List<Cell> placePattern(String patternKey,double mouseX,double mouseY, int patternRotation) {
-		List<Cell> placedCells = new ArrayList<Cell>();
+	/** Places cells in a defined pattern with its top left corner at the given grid position.
+	 * Returns the grid positions of the cells that were not already alive, so they can be removed again. */
+	public List<int[]> placePattern(String patternKey, int x, int y, int patternRotation) {
+		List<int[]> placedCells = new ArrayList<int[]>();
 		List<int[]> pattern = rotatePattern(patternKey, patternRotation);
 		for (int[] position : pattern) {
-			double x = mouseX + position[0]*cellSize;
-			double y = mouseY + position[1]*cellSize;
-			Position pos = new Position(x, y);
-			
-			if (currentBuffer.get(pos) == null) {
-				Cell cell = new Cell(this, cellSize, x, y);
-				currentBuffer.put(new Position(x,y), cell);
-				placedCells.add(cell);
+			int cellX = x + position[0];
+			int cellY = y + position[1];
+			if (!engine.isAlive(cellX, cellY)) {
+				engine.setAlive(cellX, cellY, true);
+				placedCells.add(new int[] {cellX, cellY});
 			}
 		}
+		noteEdit();
 		return placedCells;
 	}
 	
 	/**
-	 * Removes a list of cells from the current buffer
+	 * Kills the cells at a list of grid positions
 	 */
-	public void removeCells(List<Cell> cells) {
-		for (Cell cell : cells) {
-			currentBuffer.remove(cell.getPos());
+	public void removeCells(List<int[]> cells) {
+		for (int[] cell : cells) {
+			engine.setAlive(cell[0], cell[1], false);
 		}
+		noteEdit();
 	}
 	
 	public List<int[]> getPattern(String patternKey) {
 		return patterns.get(patternKey);
 	}
 	
-	/** places cells randomly
-	 * possibly replaced later with specific patterns */
-	public void placeRandom() {
-		
+	/** places a random soup of cells with its top left corner at the given grid position.
+	 * The same seed, density and size always give the same soup (see RandomSoup).
+	 * @param density chance of each cell being alive, from 0 to 1
+	 * @throws IllegalArgumentException if the density is out of range or the size is not positive */
+	public void placeRandom(long seed, double density, int x, int y, int width, int height) {
+		placeSoup(new RandomSoup(seed, density, width, height), x, y);
+	}
+
+	/** places a random soup that has already been made with its top left corner at the given grid position. */
+	public void placeSoup(RandomSoup soup, int x, int y) {
+		soup.placeOn(engine, x, y);
+		noteEdit();
 	}
 	
 
@@ -306,11 +633,8 @@ public class Game {
 		} while (new ArrayList<String>(patterns.keySet()).get(patternIndex).equalsIgnoreCase("cell")); // do not allow "cell" as initial pattern
 		List<int[]> pattern = /*patterns.get("snacker");*/(List<int[]>) patterns.values().toArray()[patternIndex];
 		for (int[] position : pattern) {
-			double x = position[0]*cellSize;
-			double y = position[1]*cellSize;
-			createCell(x, y);
+			createCell(position[0], position[1]);
 		}
-		swapBuffers();
 	}
 	
 	/** Takes pattern templates from file and parse them to map
@@ -327,8 +651,20 @@ public class Game {
 		return patterns.keySet();
 	}
 	
+	/** Kills every cell and starts counting generations again. */
+	public void clear() {
+		engine.clear();
+		cellsEdited = true;
+		editedSinceStep = true;
+		generation = 0;
+		births = GameStats.UNKNOWN;
+		deaths = GameStats.UNKNOWN;
+		bounds.clear();
+		boundsStale = false;
+	}
+	
 	public void restart() {
-		swapBuffers();
+		clear();
 		defineInitialPattern();
 	}
 	
@@ -3,30 +3,34 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-import javafx.animation.KeyFrame;
-import javafx.animation.Timeline;
-import javafx.animation.Animation;
+import javafx.animation.AnimationTimer;
 import javafx.application.Application;
 import javafx.beans.value.ObservableValue;
 import javafx.collections.FXCollections;
+import javafx.concurrent.Task;
 import javafx.event.ActionEvent;
 import javafx.event.EventHandler;
 import javafx.geometry.BoundingBox;
 import javafx.geometry.Bounds;
 import javafx.geometry.HPos;
 import javafx.geometry.Insets;
+import javafx.geometry.Point2D;
 import javafx.geometry.Pos;
 import javafx.scene.Group;
 import javafx.scene.Node;
 import javafx.scene.Scene;
 import javafx.scene.control.Button;
+import javafx.scene.control.CheckBox;
 import javafx.scene.control.ColorPicker;
 import javafx.scene.control.ComboBox;
 import javafx.scene.control.ContentDisplay;
+import javafx.scene.control.Control;
 import javafx.scene.control.Label;
 import javafx.scene.control.ListCell;
 import javafx.scene.control.ListView;
+import javafx.scene.control.ProgressBar;
 import javafx.scene.control.Slider;
+import javafx.scene.control.TextField;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.input.KeyCode;
@@ -47,7 +51,6 @@ import javafx.scene.text.FontWeight;
 import javafx.scene.text.Text;
 import javafx.stage.Stage;
 import javafx.util.Callback;
-import javafx.util.Duration;
 import javafx.util.StringConverter;
 
 
@@ -66,7 +69,6 @@ public class GameOfLifeUI extends Application {
 
 	private BorderPane layout = new BorderPane();
 	private Scene scene = new Scene(layout, width, height);
-	private Timeline timeline = new Timeline();
 
 	private HBox optionsBox = new HBox();
 
@@ -95,31 +97,82 @@ public class GameOfLifeUI extends Application {
 	//rotation button and image fields
 	private Button rotateButton = new Button("0\u00B0");
 
+	//jump to generation: target field, jump/cancel button and progress of the jump
+	private TextField jumpField = new TextField();
+	private Button jumpButton = new Button("jump");
+	private ProgressBar jumpProgress = new ProgressBar(0);
+	private VBox jumpBox = new VBox();
+	private Task<Long> jumpTask;
+	private volatile boolean jumpCancelled;
+
+	//random soup: size, density and seed, which is picked when left blank
+	private ComboBox<String> soupBox = new ComboBox<String>();
+	private TextField densityField = new TextField("0.5");
+	private TextField seedField = new TextField();
+	private Button soupButton = new Button("fill");
+
 	// String for toggling between background white and background black
 	private String backgroundColour = "WHITE"; 
 
 	//For generation count
-	private Text genText = new Text("Gen: -1");
+	private Text genText = new Text("Gen: 0");
 	private Text cellsText = new Text();
+	private Text cycleText = new Text();
+	private Text rateText = new Text();
+	//what was wrong with the last value typed in that could not be used, and the control it was typed into
+	private Text errorText = new Text();
+	private Control errorControl;
+	//generation and time the rate shown was worked out from
+	private long rateGeneration;
+	private long rateTime;
 
 	private int cellSize = 20;
 	private double minScale = 0.1; 
+	//the zoom slider moves in powers of two, down to where a pixel covers thousands of cells
+	private double minZoom = 1.0 / 65536;
 	private double scale = 1;
-	private Group displayBuffer = new Group();
-	private Game game = new Game(cellSize);
+	//the Cells of the live cells, kept in the order of cellBuffer's, and the temporary pattern following the mouse
+	private Group cellNodes = new Group();
+	private Game game = new Game();
+	private PatternPreview preview = new PatternPreview(game, cellSize);
+	private Group displayBuffer = new Group(cellNodes, preview);
+	private CellBuffer cellBuffer = new CellBuffer(game, cellSize);
+	//draws the cells as pixels unless a Cell node per cell is chosen
+	private CellRenderer renderer = new CellRenderer();
+	//the game is played on a thread of its own, which hands over a snapshot of the view after each generation
+	private Simulation simulation = new Simulation(game);
+	private AnimationTimer pulse;
+	/** The part of the grid in view, as last given to the simulation. */
+	private ViewArea viewArea;
+	/** The snapshot on display while the game is playing, drawn again when the view moves; null when paused. */
+	private GenerationSnapshot shownSnapshot;
+	private boolean drawPixels = true;
 	private GridBackground grid = new GridBackground(cellSize, minScale);
 	private Group scaleOffset = new Group(displayBuffer, grid);
 
 	private Slider zoomSlider;
 	private Slider speedSlider;
+	//as fast as the engine can instead of the speed slider, held back to the limit typed in if there is one
+	private CheckBox maxSpeedBox = new CheckBox("max speed");
+	private TextField limitField = new TextField();
 	private Label zoomLabel = new Label("zoom");
 	private Label speedLabel = new Label("speed");	
 	private Label patternLabel = new Label("patterns");	
 	private Label colorLabel = new Label("colour rules");	
 	private Label rotateLabel = new Label("rotate");
+	private Label engineLabel = new Label("engine");
+	private Label ruleLabel = new Label("rule");
+	private Label boardLabel = new Label("board");
+	private Label renderLabel = new Label("renderer");
+	private Label jumpLabel = new Label("jump to gen");
+	private Label soupLabel = new Label("random soup");
 	HBox colorLabelBox = new HBox(5,colorLabel);
 
 	private ComboBox<String> patternBox = new ComboBox<String>();
+	private ComboBox<String> engineBox = new ComboBox<String>();
+	private ComboBox<String> ruleBox = new ComboBox<String>();
+	private ComboBox<String> boardBox = new ComboBox<String>();
+	private ComboBox<String> renderBox = new ComboBox<String>();
 	private ComboBox<Map.Entry<String,Paint[]>> colorBox = new ComboBox<Map.Entry<String,Paint[]>>();
 	private CellFactory cellFactory = new CellFactory();
 	private int patternRotation = 0;
@@ -127,17 +180,26 @@ public class GameOfLifeUI extends Application {
 
 	@Override
 	public void start(Stage primaryStage) throws Exception {
-		//TIMELINE
+		//SIMULATION
 		//________________
-		KeyFrame frame = new KeyFrame(Duration.millis(100), new EventHandler<ActionEvent>() {
+		//each pulse shows the newest generation the simulation has handed over, if there is one
+		pulse = new AnimationTimer() {
 			@Override
-			public void handle(ActionEvent arg0) {
-				update();
+			public void handle(long now) {
+				GenerationSnapshot snapshot = simulation.takeSnapshot();
+				if (snapshot != null) {
+					showSnapshot(snapshot);
+				} else if (playButton.getGraphic() == pauseView && !simulation.isRunning()) {
+					//a generation failed and stopped play
+					pause();
+					RuntimeException failure = simulation.takeFailure();
+					if (failure != null) {
+						showError(playButton, "Generation failed: " + failure);
+					}
+				}
 			}
-		});
-
-		timeline.setCycleCount(Timeline.INDEFINITE);
-		timeline.getKeyFrames().add(frame);
+		};
+		pulse.start();
 
 		//SCROLLING
 		//____________________
@@ -150,7 +212,7 @@ public class GameOfLifeUI extends Application {
 
 		//LAYOUT
 		//____________________
-		layout.getChildren().add(scaleOffset);
+		layout.getChildren().addAll(renderer, scaleOffset);
 
 		playButton.setStyle(
 				"-fx-base: #353535;-fx-text-fill: white; -fx-pref-width: 28px; -fx-pref-height: 28px;");
@@ -198,6 +260,66 @@ public class GameOfLifeUI extends Application {
 		VBox rotateBox = new VBox(rotateLabel, rotateButton);
 		rotateBox.setAlignment(Pos.CENTER);
 
+		//engine selection
+		engineBox.setItems(FXCollections.observableArrayList(Game.getEngineNames()));
+		engineBox.getSelectionModel().select(game.getEngineName());
+		engineBox.setOnAction(this::changeEngine);
+		engineBox.setFocusTraversable(false);
+		VBox engineSelectBox = new VBox(engineLabel, engineBox);
+		engineSelectBox.setAlignment(Pos.CENTER);
+
+		//rule selection; any rulestring can also be typed in
+		ruleBox.setItems(FXCollections.observableArrayList(Rule.getNamedRules().values()));
+		ruleBox.setEditable(true);
+		ruleBox.setValue(game.getRule().toString());
+		ruleBox.setOnAction(this::changeRule);
+		ruleBox.setPrefWidth(110);
+		VBox ruleSelectBox = new VBox(ruleLabel, ruleBox);
+		ruleSelectBox.setAlignment(Pos.CENTER);
+
+		//board size for the Bounded and Torus engines; any WxH can also be typed in
+		boardBox.setItems(FXCollections.observableArrayList("64x64", "128x128", "256x256", "512x512", "1024x1024"));
+		boardBox.setEditable(true);
+		boardBox.setValue(game.getBoardSize());
+		boardBox.setOnAction(this::changeBoardSize);
+		boardBox.setPrefWidth(100);
+		VBox boardSelectBox = new VBox(boardLabel, boardBox);
+		boardSelectBox.setAlignment(Pos.CENTER);
+
+		//renderer: pixels drawn from the engine, or a Cell node per live cell
+		renderBox.setItems(FXCollections.observableArrayList("Pixels", "Nodes"));
+		renderBox.setValue(drawPixels ? "Pixels" : "Nodes");
+		renderBox.setOnAction(this::changeRenderer);
+		renderBox.setFocusTraversable(false);
+		VBox renderSelectBox = new VBox(renderLabel, renderBox);
+		renderSelectBox.setAlignment(Pos.CENTER);
+
+		//jump to generation, run off the FX thread
+		jumpField.setPrefWidth(80);
+		jumpField.setOnAction(this::doJump);
+		jumpButton.setOnAction(this::doJump);
+		jumpButton.setFocusTraversable(false);
+		jumpProgress.setPrefWidth(80);
+		jumpProgress.setVisible(false);
+		HBox jumpControls = new HBox(padding, jumpField, jumpButton);
+		jumpBox.getChildren().addAll(jumpLabel, jumpControls, jumpProgress);
+		jumpBox.setAlignment(Pos.CENTER);
+
+		//random soup in place of the cells, centred on the origin
+		soupBox.setItems(FXCollections.observableArrayList("16x16", "64x64", "128x128", "256x256"));
+		soupBox.setEditable(true);
+		soupBox.setValue("64x64");
+		soupBox.setPrefWidth(90);
+		densityField.setPrefWidth(45);
+		seedField.setPrefWidth(80);
+		seedField.setPromptText("seed");
+		seedField.setOnAction(this::doSoup);
+		soupButton.setOnAction(this::doSoup);
+		soupButton.setFocusTraversable(false);
+		HBox soupControls = new HBox(padding, soupBox, densityField, seedField, soupButton);
+		VBox soupPane = new VBox(soupLabel, soupControls);
+		soupPane.setAlignment(Pos.CENTER);
+
 		/**
 		 * Generation and Lifespan statistics
 		 */
@@ -205,13 +327,19 @@ public class GameOfLifeUI extends Application {
 		statBox.setAlignment(Pos.CENTER_RIGHT);
 		statBox.setSpacing(padding);
 		statBox.setPadding(new Insets(padding, padding, padding, padding));
-		statBox.getChildren().addAll(genText, cellsText);
+		statBox.getChildren().addAll(genText, cellsText, cycleText, rateText, errorText);
 		statBox.setBackground(new Background(new BackgroundFill(Color.TRANSPARENT, null, null)));
 		genText.setFill(Color.RED);
 		cellsText.setFill(Color.RED);
+		cycleText.setFill(Color.RED);
+		rateText.setFill(Color.RED);
+		errorText.setFill(Color.RED);
 		//genText.setTextAlignment(TextAlignment.JUSTIFY);
 		genText.setFont(Font.font("Arial", FontWeight.BOLD, 14));
 		cellsText.setFont(Font.font("Arial", FontWeight.BOLD, 14));
+		cycleText.setFont(Font.font("Arial", FontWeight.BOLD, 14));
+		rateText.setFont(Font.font("Arial", FontWeight.BOLD, 14));
+		errorText.setFont(Font.font("Arial", FontWeight.BOLD, 14));
 
 		layout.setTop(statBox);		
 
@@ -257,9 +385,9 @@ public class GameOfLifeUI extends Application {
 		GridPane sliderPane = new GridPane();
 
 		zoomSlider = new Slider();
-		zoomSlider.setMin(minScale);
-		zoomSlider.setMax(3);
-		zoomSlider.setValue(1);
+		zoomSlider.setMin(Math.log(minZoom) / Math.log(2));
+		zoomSlider.setMax(Math.log(3) / Math.log(2));
+		zoomSlider.setValue(0);
 		//zoomSlider.setMajorTickUnit(minScale);
 		//zoomSlider.setMinorTickCount(0);
 		//zoomSlider.setBlockIncrement(minScale);
@@ -275,27 +403,41 @@ public class GameOfLifeUI extends Application {
 		//speedSlider.setShowTickLabels(true);
 		speedSlider.valueProperty().addListener(this::setSpeed);
 		speedSlider.setFocusTraversable(false);
+		maxSpeedBox.setOnAction(this::changeMaxSpeed);
+		maxSpeedBox.setFocusTraversable(false);
+		limitField.setPrefWidth(80);
+		limitField.setPromptText("gens/s limit");
+		limitField.setOnAction(this::changeMaxSpeed);
 		
 		patternPane.addColumn(0, patternLabel, patternBox);
 		colourPane.addColumn(1, colorLabelBox, colorBox);		
 		sliderPane.addColumn(2, zoomLabel, zoomSlider);
 		sliderPane.addColumn(3, speedLabel, speedSlider);
+		sliderPane.addColumn(4, maxSpeedBox, limitField);
 
 		GridPane.setHalignment(zoomLabel, HPos.CENTER);
 		GridPane.setHalignment(speedLabel, HPos.CENTER);
 		GridPane.setHalignment(patternLabel, HPos.CENTER);
 		GridPane.setHalignment(colorLabel, HPos.CENTER);
-		optionsBox.getChildren().addAll(patternPane, rotateBox, colourPane, sliderPane, nextGenButton, restartButton, toggleBackGroundButton, playButton);
+		optionsBox.getChildren().addAll(patternPane, rotateBox, colourPane, engineSelectBox, ruleSelectBox, boardSelectBox, renderSelectBox, jumpBox, soupPane, sliderPane, nextGenButton, restartButton, toggleBackGroundButton, playButton);
 		
 		layout.setBottom(optionsBox);
 
-		displayBuffer.getChildren().addAll(game.getCurrentBuffer());
+		if (isDrawingPixels()) {
+			cellBuffer.clear();
+		} else {
+			cellNodes.getChildren().setAll(cellBuffer.getCells());
+		}
 
 		primaryStage.widthProperty().addListener((obs, oldVal, newVal) -> grid.construct());
 		primaryStage.heightProperty().addListener((obs, oldVal, newVal) -> grid.construct());
+		scene.widthProperty().addListener((obs, oldVal, newVal) -> resizeRenderer());
+		scene.heightProperty().addListener((obs, oldVal, newVal) -> resizeRenderer());
 		primaryStage.setTitle("Conway's Game of Life");
 		primaryStage.setScene(scene);
 		primaryStage.show();
+		grid.construct();
+		resizeRenderer();
 		scrollGame(width*0.5, height*0.5);//must be after stage is shown
 		updateStats();
 		Bounds scaleBounds = scaleOffset.getBoundsInLocal();
@@ -315,9 +457,7 @@ public class GameOfLifeUI extends Application {
 		Bounds scaleBounds = scaleOffset.getBoundsInLocal();
 		double deltaX=0;
 		double deltaY=0;
-		String generation = genText.getText().substring(5);
-		int gen = Integer.parseInt(generation);
-		if (gen % 2 != 0) {
+		if (game.getGeneration() % 2 != 0) {
 			deltaX = initialBounds1.getMinX() - scaleBounds.getMinX();
 			deltaY = initialBounds1.getMinY() - scaleBounds.getMinY();
 			initialBounds2 = new BoundingBox(scaleBounds.getMinX(), scaleBounds.getMinY(), scaleBounds.getWidth(), scaleBounds.getHeight());
@@ -334,31 +474,208 @@ public class GameOfLifeUI extends Application {
 		}
 	}
 	
+	/**
+	 * Steps the game one generation by hand. While it is playing it steps on its own, so this does nothing then.
+	 */
 	public void update() {
-		updateStats();
+		if (jumpTask != null || simulation.isRunning()) {
+			return;
+		}
 		game.update();
+		if (isDrawingPixels()) {
+			drawCells();
+		} else if (!cellBuffer.applyChanges(cellNodes.getChildren())) {
+			refreshCells();
+		}
 		refreshBuffer();
+		updateStats();
 		//offsetByBoundsDelta();
 	}
 
 	public void setSpeed(ObservableValue<? extends Number> ov, Number oldVal, Number newVal) {
 		layout.requestFocus();
-		timeline.setRate(newVal.doubleValue());
+		updateSpeed();
 	}
 
+	/**
+	 * Method to switch between the speed slider and playing as fast as the engine can,
+	 * or to change the limit on how fast that is.
+	 */
+	private void changeMaxSpeed(ActionEvent act) {
+		layout.requestFocus();
+		speedSlider.setDisable(maxSpeedBox.isSelected());
+		updateSpeed();
+	}
+
+	/**
+	 * Gives the simulation the speed chosen: the slider's, or at max speed the limit typed in,
+	 * which a blank limit leaves unbounded. An invalid limit is shown as an error against its
+	 * field and also leaves the speed unbounded.
+	 */
+	private void updateSpeed() {
+		if (!maxSpeedBox.isSelected()) {
+			//the limit is not in use, so neither is what was wrong with it
+			clearError(limitField);
+			//ten generations a second at 1
+			simulation.setGenerationsPerSecond(10 * speedSlider.getValue());
+			return;
+		}
+		double limit = Double.POSITIVE_INFINITY;
+		String text = limitField.getText().trim();
+		if (!text.isEmpty()) {
+			try {
+				limit = Double.parseDouble(text);
+			} catch (NumberFormatException e) {
+				limit = Double.NaN;
+			}
+			if (!(limit > 0)) {
+				showError(limitField, "Not a rate: " + text);
+				simulation.setGenerationsPerSecond(Double.POSITIVE_INFINITY);
+				return;
+			}
+		}
+		clearError(limitField);
+		simulation.setGenerationsPerSecond(limit);
+	}
+
+	/**
+	 * Shows a generation handed over by the simulation.
+	 */
+	private void showSnapshot(GenerationSnapshot snapshot) {
+		shownSnapshot = snapshot;
+		if (isDrawingPixels()) {
+			drawCells();
+		} else {
+			cellBuffer.refresh(snapshot);
+			cellNodes.getChildren().setAll(cellBuffer.getCells());
+		}
+		refreshBuffer();
+		showStats(snapshot.getStats(), snapshot.getCyclePeriod(), snapshot.getCycleDx(), snapshot.getCycleDy());
+		showRate(snapshot);
+	}
+
+	/**
+	 * Shows how many generations a second are being played, worked out again every half a
+	 * second from the generations the snapshots were captured at.
+	 */
+	private void showRate(GenerationSnapshot snapshot) {
+		long elapsed = snapshot.getTime() - rateTime;
+		if (elapsed < 500_000_000L) {
+			return;
+		}
+		long generation = snapshot.getStats().getGeneration();
+		rateText.setText(String.format("Gens/s: %.1f", (generation - rateGeneration) * 1e9 / elapsed));
+		rateGeneration = generation;
+		rateTime = snapshot.getTime();
+	}
+
+	/**
+	 * Brings the drawing of the cells in line with the game: redraws the pixels, or brings
+	 * the Cells of the cells in view up to date and puts them all on display again.
+	 * The game is left alone while a jump is running, and while it is playing the snapshot
+	 * on display is drawn instead.
+	 */
+	private void refreshCells() {
+		if (jumpTask != null) {
+			return;
+		}
+		Point2D origin = renderer.sceneToLocal(displayBuffer.localToScene(0, 0));
+		Point2D corner = renderer.sceneToLocal(displayBuffer.localToScene(cellSize, cellSize));
+		viewArea = renderer.viewArea(origin.getX(), origin.getY(), corner.getX() - origin.getX());
+		simulation.setArea(viewArea);
+		if (isDrawingPixels()) {
+			drawCells();
+		} else {
+			//the scene's corners in displayBuffer, where the Cells are placed
+			Point2D topLeft = displayBuffer.sceneToLocal(0, 0);
+			Point2D bottomRight = displayBuffer.sceneToLocal(scene.getWidth(), scene.getHeight());
+			cellBuffer.setView(topLeft.getX(), topLeft.getY(), bottomRight.getX(), bottomRight.getY());
+			if (!simulation.isRunning()) {
+				cellBuffer.refresh();
+			} else if (shownSnapshot != null) {
+				cellBuffer.refresh(shownSnapshot);
+			}
+			cellNodes.getChildren().setAll(cellBuffer.getCells());
+		}
+	}
+
+	/**
+	 * Runs something that changes the game. The simulation thread has the game to itself while
+	 * it plays, so it is stopped for the change and started again afterwards; the change is
+	 * shown from the game itself, and a snapshot is taken to show until the next generation.
+	 */
+	private void editGame(Runnable edit) {
+		boolean playing = simulation.isRunning();
+		simulation.stop();
+		edit.run();
+		if (playing) {
+			shownSnapshot = GenerationSnapshot.capture(game, viewArea);
+			simulation.start();
+		}
+	}
+
+	/**
+	 * True if the cells are drawn as pixels: when that is chosen, or when they are too small
+	 * for Cells to be worth laying out and are drawn as a density map anyway.
+	 */
+	private boolean isDrawingPixels() {
+		return drawPixels || cellSize * scale < CellRenderer.DETAIL_PIXELS;
+	}
+
+	/**
+	 * Shows the pixels or the Cells, whichever isDrawingPixels says. The Cells are let go of while pixels are drawn.
+	 */
+	private void showRenderer() {
+		boolean pixels = isDrawingPixels();
+		if (pixels == renderer.isVisible()) {
+			return;
+		}
+		renderer.setVisible(pixels);
+		if (pixels) {
+			cellBuffer.clear();
+			cellNodes.getChildren().clear();
+		}
+	}
+
+	/**
+	 * Redraws the pixels, lined up with the grid by taking the scene position and size of
+	 * cell (0, 0) from displayBuffer, where its Cell would be. The game is left alone while a jump
+	 * is running, and while it is playing the snapshot on display is drawn instead.
+	 */
+	private void drawCells() {
+		if (jumpTask != null) {
+			return;
+		}
+		Point2D origin = renderer.sceneToLocal(displayBuffer.localToScene(0, 0));
+		Point2D corner = renderer.sceneToLocal(displayBuffer.localToScene(cellSize, cellSize));
+		if (!simulation.isRunning()) {
+			renderer.draw(game, origin.getX(), origin.getY(), corner.getX() - origin.getX());
+		} else if (shownSnapshot != null) {
+			renderer.draw(shownSnapshot, origin.getX(), origin.getY(), corner.getX() - origin.getX());
+		}
+	}
+
+	private void resizeRenderer() {
+		renderer.setSize((int) Math.ceil(scene.getWidth()), (int) Math.ceil(scene.getHeight()));
+		refreshCells();
+	}
+
+	/**
+	 * Takes away the temporary pattern.
+	 */
 	public void refreshBuffer() {
-		displayBuffer.getChildren().clear();
-		displayBuffer.getChildren().addAll(game.getCurrentBuffer());
+		preview.hide();
 	}
 
 	public void doZoom(ObservableValue<? extends Number> ov, Number oldVal, Number newVal) {
 		layout.requestFocus();
-		double scaleVal = Math.round(newVal.doubleValue() * 2.0) * 0.5;
-		scaleVal = newVal.doubleValue();
+		double scaleVal = Math.pow(2, newVal.doubleValue());
 		scaleOffset.setScaleX(scaleVal);
 		scaleOffset.setScaleY(scaleVal);
 		grid.scale(scaleVal);
 		scale = scaleVal;
+		showRenderer();
+		refreshCells();
 		//zoomSlider.setValue(scaleVal);
 	}
 
@@ -366,6 +683,7 @@ public class GameOfLifeUI extends Application {
 		displayBuffer.setTranslateX(displayBuffer.getTranslateX() + dx);
 		displayBuffer.setTranslateY(displayBuffer.getTranslateY() + dy);
 		grid.scroll(dx, dy);
+		refreshCells();
 	}
 
 	public void doMouseScroll(ScrollEvent event) {
@@ -396,15 +714,28 @@ public class GameOfLifeUI extends Application {
 	 * Action Event
 	 */
 	private void doPlay(ActionEvent act){
-		if (timeline.getStatus() == Animation.Status.RUNNING) {
-			timeline.pause();
-			playButton.setGraphic(playView);
+		if (simulation.isRunning()) {
+			pause();
 		} else {
-			timeline.play();
+			shownSnapshot = null;
+			rateGeneration = game.getGeneration();
+			rateTime = System.nanoTime();
+			clearError(playButton);
+			simulation.start();
 			playButton.setGraphic(pauseView);
 		}
 	}
 
+	/**
+	 * Stops playing, and shows the game itself again in place of the snapshots, which may have been behind it.
+	 */
+	private void pause() {
+		stopPlaying();
+		refreshCells();
+		refreshBuffer();
+		updateStats();
+	}
+
 	/**
 	 * Method for user to toggle between a black background and a white background
 	 */			
@@ -415,31 +746,54 @@ public class GameOfLifeUI extends Application {
 			optionsBox.setBackground(new Background(new BackgroundFill(Color.BLACK, null, null)));
 			zoomLabel.setTextFill(Color.WHITE);
 			speedLabel.setTextFill(Color.WHITE);
+			maxSpeedBox.setTextFill(Color.WHITE);
 			patternLabel.setTextFill(Color.WHITE);
 			colorLabel.setTextFill(Color.WHITE);
 			rotateLabel.setTextFill(Color.WHITE);
+			engineLabel.setTextFill(Color.WHITE);
+			ruleLabel.setTextFill(Color.WHITE);
+			boardLabel.setTextFill(Color.WHITE);
+			renderLabel.setTextFill(Color.WHITE);
+			jumpLabel.setTextFill(Color.WHITE);
+			soupLabel.setTextFill(Color.WHITE);
 		} else {
 			backgroundColour = "WHITE";
 			layout.setBackground(new Background(new BackgroundFill(Color.WHITE, null, null)));
 			optionsBox.setBackground(new Background(new BackgroundFill(Color.WHITE, null, null)));
 			zoomLabel.setTextFill(Color.BLACK);
 			speedLabel.setTextFill(Color.BLACK);
+			maxSpeedBox.setTextFill(Color.BLACK);
 			patternLabel.setTextFill(Color.BLACK);
 			colorLabel.setTextFill(Color.BLACK);
 			rotateLabel.setTextFill(Color.BLACK);
+			engineLabel.setTextFill(Color.BLACK);
+			ruleLabel.setTextFill(Color.BLACK);
+			boardLabel.setTextFill(Color.BLACK);
+			renderLabel.setTextFill(Color.BLACK);
+			jumpLabel.setTextFill(Color.BLACK);
+			soupLabel.setTextFill(Color.BLACK);
 		}
 	}	
 	
+	/**
+	 * Stops the simulation, after which the game can be changed. The caller shows the game afterwards.
+	 */
+	private void stopPlaying() {
+		simulation.stop();
+		shownSnapshot = null;
+		playButton.setGraphic(playView);
+		rateText.setText("");
+	}
+
 	/**
 	 * Method to refresh the application on button
 	 */		
 	public void doRestart(ActionEvent act) {
-		timeline.pause();
-		playButton.setGraphic(playView);
+		stopPlaying();
 		game.restart();
+		refreshCells();
 		resetTranslation();
 		refreshBuffer();
-		genText.setText("Gen: -1");
 		updateStats();
 	}
 	
@@ -453,16 +807,245 @@ public class GameOfLifeUI extends Application {
 	}
 
 	/**
-	 * Method to count the generation of the cell in the top-left 
-	 * of the screen by using the subString method and change the int into String.
+	 * Method to switch between drawing the cells as pixels and giving each a Cell node.
+	 */
+	public void changeRenderer(ActionEvent act) {
+		drawPixels = renderBox.getValue().equals("Pixels");
+		showRenderer();
+		refreshCells();
+		refreshBuffer();
+		layout.requestFocus();
+	}
+
+	/**
+	 * Method to switch the simulation engine, keeping the cells that are currently alive
+	 */
+	public void changeEngine(ActionEvent act) {
+		editGame(() -> {
+			game.setEngine(engineBox.getValue());
+			//cells off a bounded board are gone and those off a torus have wrapped round
+			refreshCells();
+		});
+		refreshBuffer();
+		layout.requestFocus();
+	}
+
+	/**
+	 * Method to change the size of the board used by the bounded and torus engines. An invalid
+	 * size is shown as an error and replaced by the current size.
+	 */
+	public void changeBoardSize(ActionEvent act) {
+		//setting the box back to the current size below fires this again
+		if (boardBox.getValue().equals(game.getBoardSize())) {
+			return;
+		}
+		editGame(() -> {
+			try {
+				game.setBoardSize(boardBox.getValue());
+				clearError(boardBox);
+			} catch (IllegalArgumentException e) {
+				showError(boardBox, e.getMessage());
+			}
+			boardBox.setValue(game.getBoardSize());
+			refreshCells();
+		});
+		refreshBuffer();
+		layout.requestFocus();
+	}
+
+	/**
+	 * Method to change the birth/survival rule. An invalid rulestring is shown as an error and
+	 * replaced by the current rule.
+	 */
+	public void changeRule(ActionEvent act) {
+		//setting the box back to the current rule below fires this again
+		if (game.getRule().toString().equals(ruleBox.getValue())) {
+			return;
+		}
+		editGame(() -> {
+			try {
+				game.setRule(ruleBox.getValue());
+				clearError(ruleBox);
+			} catch (IllegalArgumentException e) {
+				showError(ruleBox, e.getMessage());
+			}
+			ruleBox.setValue(game.getRule().toString());
+		});
+		layout.requestFocus();
+	}
+
+	/**
+	 * Method to replace the cells with a random soup of the chosen size and density.
+	 * The seed is shown so that the same soup can be made again. A value that cannot be used is
+	 * shown as an error against its field, and the cells are left as they are.
+	 */
+	private void doSoup(ActionEvent act) {
+		layout.requestFocus();
+		//the control whose value is being used, to be marked if it is wrong
+		Control field = soupBox;
+		int[] size;
+		long seed;
+		RandomSoup soup;
+		try {
+			size = Game.parseSize(soupBox.getValue());
+			field = seedField;
+			seed = seedField.getText().trim().isEmpty() ? System.nanoTime() : Long.parseLong(seedField.getText().trim());
+			field = densityField;
+			//making the soup checks the density before any cells are touched
+			soup = new RandomSoup(seed, Double.parseDouble(densityField.getText().trim()), size[0], size[1]);
+		} catch (IllegalArgumentException e) {
+			//a NumberFormatException's message does not say what was being parsed
+			showError(field, e instanceof NumberFormatException
+					? "Not a number: " + ((TextField) field).getText() : e.getMessage());
+			return;
+		}
+		clearError(soupBox);
+		clearError(seedField);
+		clearError(densityField);
+		stopPlaying();
+		game.clear();
+		game.placeSoup(soup, -size[0] / 2, -size[1] / 2);
+		seedField.setText(Long.toString(seed));
+		refreshCells();
+		resetTranslation();
+		refreshBuffer();
+		updateStats();
+	}
+
+	/**
+	 * Method to jump to the generation typed in, or to cancel a jump that is running.
+	 * The game is advanced on a background thread in chunks, so that progress can be shown
+	 * and the jump cancelled between chunks; the display is only rebuilt once it is over.
+	 * Everything else that would touch the game is disabled until then.
+	 */
+	private void doJump(ActionEvent act) {
+		layout.requestFocus();
+		if (jumpTask != null) {
+			jumpCancelled = true;
+			return;
+		}
+		long target;
+		try {
+			target = Long.parseLong(jumpField.getText().trim());
+		} catch (NumberFormatException e) {
+			showError(jumpField, "Not a generation: " + jumpField.getText());
+			return;
+		}
+		//the simulation thread has the game while it plays, so it is stopped before the generation is read
+		if (simulation.isRunning()) {
+			pause();
+		}
+		long total = target - game.getGeneration();
+		if (total <= 0) {
+			showError(jumpField, "Already at generation " + game.getGeneration());
+			return;
+		}
+		clearError(jumpField);
+		jumpCancelled = false;
+		jumpTask = new Task<Long>() {
+			@Override
+			protected Long call() {
+				long done = 0;
+				long chunk = Math.max(1, total / 100);
+				while (done < total && !jumpCancelled) {
+					long generations = Math.min(chunk, total - done);
+					try {
+						game.advance(generations);
+					} catch (ArithmeticException e) {
+						//a moving cycle or a HashLife jump would carry the cells off the grid, stop where they are
+						updateMessage("Cannot jump that far: " + e.getMessage());
+						break;
+					}
+					done += generations;
+					updateProgress(done, total);
+				}
+				return done;
+			}
+		};
+		jumpTask.setOnSucceeded(event -> {
+			if (!jumpTask.getMessage().isEmpty()) {
+				showError(jumpField, jumpTask.getMessage());
+			}
+			finishJump();
+		});
+		jumpTask.setOnFailed(event -> {
+			showError(jumpField, "Jump failed: " + jumpTask.getException());
+			finishJump();
+		});
+		jumpProgress.progressProperty().bind(jumpTask.progressProperty());
+		jumpProgress.setVisible(true);
+		jumpButton.setText("cancel");
+		for (Node control : optionsBox.getChildren()) {
+			control.setDisable(control != jumpBox);
+		}
+		jumpField.setDisable(true);
+		Thread jumpThread = new Thread(jumpTask, "jump to generation " + target);
+		jumpThread.setDaemon(true);
+		jumpThread.start();
+	}
+
+	private void finishJump() {
+		jumpTask = null;
+		jumpProgress.progressProperty().unbind();
+		jumpProgress.setProgress(0);
+		jumpProgress.setVisible(false);
+		jumpButton.setText("jump");
+		for (Node control : optionsBox.getChildren()) {
+			control.setDisable(false);
+		}
+		jumpField.setDisable(false);
+		refreshCells();
+		refreshBuffer();
+		updateStats();
+	}
+
+	/**
+	 * Shows why a value typed into a control could not be used, under the statistics, and
+	 * outlines the control in red until a value typed into it is used.
+	 */
+	private void showError(Control control, String message) {
+		if (errorControl != null) {
+			errorControl.setStyle("");
+		}
+		errorControl = control;
+		control.setStyle("-fx-border-color: red;");
+		errorText.setText(message);
+	}
+
+	/** Takes away the error shown for a control, once a value typed into it has been used. */
+	private void clearError(Control control) {
+		if (errorControl == control) {
+			control.setStyle("");
+			errorControl = null;
+			errorText.setText("");
+		}
+	}
+
+	/**
+	 * Method to show the generation and cell counts in the top-left 
+	 * of the screen, as counted by the game.
 	 */
 	public void updateStats() {
-		String generation = genText.getText().substring(5);
-		int gen = Integer.parseInt(generation);
-		gen++;
-		genText.setText("Gen: " + gen);
-		int numCells = displayBuffer.getChildren().size();
-		cellsText.setText("Cells: " + numCells);
+		showStats(game.getStats(), game.isCycling() ? game.getCyclePeriod() : 0, game.getCycleDx(), game.getCycleDy());
+	}
+
+	/**
+	 * Shows a generation's counts, and its cycle if the period is not 0.
+	 */
+	private void showStats(GameStats stats, int cyclePeriod, long cycleDx, long cycleDy) {
+		genText.setText("Gen: " + stats.getGeneration());
+		if (stats.getBirths() == GameStats.UNKNOWN) {
+			cellsText.setText("Cells: " + stats.getPopulation());
+		} else {
+			cellsText.setText("Cells: " + stats.getPopulation() + " (+" + stats.getBirths() + " -" + stats.getDeaths() + ")");
+		}
+		if (cyclePeriod == 0) {
+			cycleText.setText("");
+		} else if (cycleDx == 0 && cycleDy == 0) {
+			cycleText.setText("Period: " + cyclePeriod);
+		} else {
+			cycleText.setText("Period: " + cyclePeriod + ", moving (" + cycleDx + ", " + cycleDy + ")");
+		}
 	}	
 
 	private void resetTranslation() {
@@ -481,22 +1064,28 @@ public class GameOfLifeUI extends Application {
 		private double prevX;
 		private double prevY;
 		private boolean isScrolling;
-		private List<Cell> placedPattern = new ArrayList<Cell>();
+		private List<int[]> placedPattern = new ArrayList<int[]>();
 
 		@Override
 		public void handle(MouseEvent event) {
 			double offsetX = event.getX()/scale - displayBuffer.getTranslateX();
 			double offsetY = event.getY()/scale - displayBuffer.getTranslateY();
-			double snapX = Math.round(offsetX/cellSize) * cellSize;
-			double snapY = Math.round(offsetY/cellSize) * cellSize;
+			int gridX = (int) Math.round(offsetX/cellSize);
+			int gridY = (int) Math.round(offsetY/cellSize);
 			if (event.getEventType() == MouseEvent.MOUSE_PRESSED) {
 				//scrolling
 				prevX = offsetX;
 				prevY = offsetY;
 				
-				//pattern placing
+				//pattern placing, not while a jump is running
 				placedPattern.clear();
-				placedPattern.addAll(game.placePattern(patternBox.getValue(),snapX,snapY, patternRotation));
+				if (jumpTask != null) {
+					return;
+				}
+				editGame(() -> {
+					placedPattern.addAll(game.placePattern(patternBox.getValue(),gridX,gridY, patternRotation));
+					refreshCells();
+				});
 				refreshBuffer();	
 			}
 
@@ -509,7 +1098,13 @@ public class GameOfLifeUI extends Application {
 				prevX = offsetX;
 				prevY = offsetY;
 				
-				game.removeCells(placedPattern);
+				if (!placedPattern.isEmpty()) {
+					editGame(() -> {
+						game.removeCells(placedPattern);
+						placedPattern.clear();
+						refreshCells();
+					});
+				}
 				refreshBuffer();
 				isScrolling = false;
 			}
@@ -518,8 +1113,7 @@ public class GameOfLifeUI extends Application {
 			if (event.getEventType() == MouseEvent.MOUSE_MOVED) {
 				//pattern placing
 				if (!isScrolling) {
-					refreshBuffer();
-					createTemporaryPattern(patternBox.getValue(),snapX,snapY);
+					createTemporaryPattern(patternBox.getValue(),gridX,gridY);
 				}
 			}
 		}
@@ -527,9 +1121,12 @@ public class GameOfLifeUI extends Application {
 	}
 	
 	private void updateCellColors() {
-		for (Node node : displayBuffer.getChildren()) {
-			Cell cell = (Cell) node;
-			cell.updateColor();
+		if (isDrawingPixels()) {
+			drawCells();
+		} else if (simulation.isRunning()) {
+			refreshCells();
+		} else {
+			cellBuffer.updateColors();
 		}
 	}
 	
@@ -568,20 +1165,9 @@ public class GameOfLifeUI extends Application {
 		}
 	}
 
-	/** Creates temporary cell that follows the mouse*/
-	public void createTemporaryCell(double x, double y) {
-		Cell cell = new Cell(game, cellSize, x, y);
-		displayBuffer.getChildren().add(cell);
-	}
-
-	/** Creates temporary cell pattern that follows the mouse*/
-	public void createTemporaryPattern(String patternKey,double mouseX,double mouseY) {
-		List<int[]> pattern = game.rotatePattern(patternKey, patternRotation);
-		for (int[] position : pattern) {
-			double x = mouseX + position[0]*cellSize;
-			double y = mouseY + position[1]*cellSize;
-			createTemporaryCell(x,y);
-		}
+	/** Moves the temporary cell pattern that follows the mouse, made again only when the pattern or rotation has changed*/
+	public void createTemporaryPattern(String patternKey,int gridX,int gridY) {
+		preview.show(patternKey, patternRotation, gridX, gridY);
 	}
 
 	private class Convertor extends StringConverter<Map.Entry<String, Paint[]>>{
@@ -0,0 +1,89 @@
+/**
+ * The counters a Game keeps as it steps, taken together at one moment: the generation,
+ * the population, the births and deaths of the last generation and the bounding box of the
+ * live cells.
+ * @author Dirglehurbleherb
+ */
+public class GameStats {
+	/** Births or deaths of an engine that cannot report the cells changed in a step. */
+	public static final long UNKNOWN = -1;
+
+	private final long generation;
+	private final long population;
+	private final long births;
+	private final long deaths;
+	private final int minX;
+	private final int minY;
+	private final int maxX;
+	private final int maxY;
+
+	public GameStats(long generation, long population, long births, long deaths, int minX, int minY, int maxX, int maxY) {
+		this.generation = generation;
+		this.population = population;
+		this.births = births;
+		this.deaths = deaths;
+		this.minX = minX;
+		this.minY = minY;
+		this.maxX = maxX;
+		this.maxY = maxY;
+	}
+
+	/**
+	 * @return the number of generations stepped since the game started or was cleared
+	 */
+	public long getGeneration() {
+		return generation;
+	}
+
+	public long getPopulation() {
+		return population;
+	}
+
+	/**
+	 * @return the cells born in the last generation, or UNKNOWN
+	 */
+	public long getBirths() {
+		return births;
+	}
+
+	/**
+	 * @return the cells that died in the last generation, or UNKNOWN
+	 */
+	public long getDeaths() {
+		return deaths;
+	}
+
+	/*Bounding box of the live cells, inclusive. Only meaningful if there are any.*/
+
+	public int getMinX() {
+		return minX;
+	}
+
+	public int getMinY() {
+		return minY;
+	}
+
+	public int getMaxX() {
+		return maxX;
+	}
+
+	public int getMaxY() {
+		return maxY;
+	}
+
+	public boolean isEmpty() {
+		return population == 0;
+	}
+
+	@Override
+	public String toString() {
+		String text = "generation " + generation + ", population " + population;
+		if (births != UNKNOWN) {
+			text += ", births " + births + ", deaths " + deaths;
+		}
+		if (!isEmpty()) {
+			text += ", bounds (" + minX + ", " + minY + ") to (" + maxX + ", " + maxY + ")";
+		}
+		return text;
+	}
+}
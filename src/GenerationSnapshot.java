@@ -0,0 +1,121 @@
+import java.util.Arrays;
+
+/**
+ * What a {@link Game} looked like at one generation, as far as the display needs to know:
+ * its counters, its cycle if it has settled into one, its rule and the live cells of the area
+ * in view (see {@link ViewArea}), with their ages and neighbour counts, or the populations of
+ * the blocks there.
+ * <p>
+ * A snapshot is captured by the thread stepping the game and never changes afterwards, so it
+ * can be handed to the JavaFX thread and drawn there while the game carries on.
+ * Capturing costs what is in view, not the whole population.
+ * @author Dirglehurbleherb
+ */
+public class GenerationSnapshot {
+	private final GameStats stats;
+	private final long time;
+	private final int cyclePeriod;
+	private final long cycleDx;
+	private final long cycleDy;
+	private final Rule rule;
+	private final ViewArea area;
+	/** Four ints per live cell in view: x, y, age and neighbours. */
+	private int[] cells = new int[64];
+	private int cellCount;
+	/** Three longs per block: x, y and population. */
+	private long[] blocks = new long[48];
+	private int blockCount;
+
+	private GenerationSnapshot(Game game, ViewArea area) {
+		stats = game.getStats();
+		time = System.nanoTime();
+		cyclePeriod = game.isCycling() ? game.getCyclePeriod() : 0;
+		cycleDx = game.getCycleDx();
+		cycleDy = game.getCycleDy();
+		rule = game.getRule();
+		this.area = area;
+		if (area.isCells()) {
+			game.forEachLiveStateIn(area.getMinX(), area.getMinY(), area.getMaxX(), area.getMaxY(), this::addCell);
+		} else {
+			int log2 = area.getBlockLog2();
+			game.forEachBlock(log2, area.getMinX() >> log2, area.getMinY() >> log2, area.getMaxX() >> log2,
+					area.getMaxY() >> log2, this::addBlock);
+		}
+	}
+
+	/**
+	 * Captures the game as it is now. The game must not be stepped or edited meanwhile.
+	 */
+	public static GenerationSnapshot capture(Game game, ViewArea area) {
+		return new GenerationSnapshot(game, area);
+	}
+
+	private void addCell(int x, int y, int age, int neighbours) {
+		if (cellCount * 4 == cells.length) {
+			cells = Arrays.copyOf(cells, cells.length * 2);
+		}
+		int i = cellCount++ * 4;
+		cells[i] = x;
+		cells[i + 1] = y;
+		cells[i + 2] = age;
+		cells[i + 3] = neighbours;
+	}
+
+	private void addBlock(int blockX, int blockY, long population) {
+		if (blockCount * 3 == blocks.length) {
+			blocks = Arrays.copyOf(blocks, blocks.length * 2);
+		}
+		int i = blockCount++ * 3;
+		blocks[i] = blockX;
+		blocks[i + 1] = blockY;
+		blocks[i + 2] = population;
+	}
+
+	public GameStats getStats() {
+		return stats;
+	}
+
+	/**
+	 * @return when the snapshot was captured, as given by System.nanoTime
+	 */
+	public long getTime() {
+		return time;
+	}
+
+	/**
+	 * @return the period of the cycle the game had settled into, or 0 if it had not
+	 */
+	public int getCyclePeriod() {
+		return cyclePeriod;
+	}
+
+	public long getCycleDx() {
+		return cycleDx;
+	}
+
+	public long getCycleDy() {
+		return cycleDy;
+	}
+
+	public Rule getRule() {
+		return rule;
+	}
+
+	public ViewArea getArea() {
+		return area;
+	}
+
+	/** Calls the visitor for every live cell captured, if the cells were captured one by one. */
+	public void forEachLiveState(CellStateVisitor visitor) {
+		for (int i = 0; i < cellCount * 4; i += 4) {
+			visitor.visit(cells[i], cells[i + 1], cells[i + 2], cells[i + 3]);
+		}
+	}
+
+	/** Calls the visitor for every block captured, if the cells were captured by the block. */
+	public void forEachBlock(BlockVisitor visitor) {
+		for (int i = 0; i < blockCount * 3; i += 3) {
+			visitor.visit((int) blocks[i], (int) blocks[i + 1], blocks[i + 2]);
+		}
+	}
+}
@@ -1,18 +1,25 @@
-import java.util.ArrayList;
-import java.util.List;
-
 import javafx.scene.Parent;
+import javafx.scene.image.PixelWriter;
+import javafx.scene.image.WritableImage;
 import javafx.scene.paint.Color;
-import javafx.scene.shape.Line;
+import javafx.scene.paint.ImagePattern;
+import javafx.scene.shape.Rectangle;
 import javafx.stage.Stage;
 
 
 /**
  * This Class contains the instructions for creating the grid on which the game takes place.
+ * <p>
+ * The grid is a single rectangle filled with a repeating image of one cell's lines, so scrolling
+ * only moves where the pattern starts and nothing is rebuilt. The lines fade out as the cells
+ * shrink from {@value #FADE_FROM} to {@value #FADE_TO} pixels across, where they would run together.
  * @author Dirglehurbleherb
  *
  */
 public class GridBackground extends Parent {
+	private static final double FADE_FROM = 8;
+	private static final double FADE_TO = 3;
+
 	private int cellSize;
 	private double dx;
 	private double dy;
@@ -20,56 +27,66 @@ public class GridBackground extends Parent {
 	private double scale = 1;
 	private double lineWidth = 1;
 	private boolean adjustLineWidthToScale = true;
-	
+	private final Rectangle area = new Rectangle();
+	/** One cell of the grid, with its line along the top and left edges. */
+	private WritableImage tile;
+	/** Width of the lines in the grid's own units. */
+	private double lineThickness;
+
 	public GridBackground(int cellSize, double minScale) {
 		super();
 		this.cellSize = cellSize;
 		this.minScale = minScale;
+		getChildren().add(area);
+		makeTile();
 	}
-	
+
 	/**
-	 * Constructs the grid based on cellSize and scene dimensions
+	 * Sizes the grid to the stage, far enough out to cover it at the smallest scale the lines are shown at
 	 */
 	public void construct() {
-		//prepare
 		Stage stage = (Stage)getScene().getWindow();
-		List<Line> buffer = new ArrayList<Line>();
 		double width = stage.getWidth() / minScale;
 		double height = stage.getHeight() / minScale;
-		
-		//make lines
-		List<Line> vLines = constructLines(true, dx, width, height);
-		List<Line> hLines = constructLines(false, dy, height, width);
-		
-		//put lines on screen
-		getChildren().clear();
-		getChildren().addAll(vLines);
-		getChildren().addAll(hLines);//buffer
+		area.setX(-width);
+		area.setY(-height);
+		area.setWidth(width * 2);
+		area.setHeight(height * 2);
 	}
-	
-	private List<Line> constructLines(boolean vertical, double dPos, double dimension1, double dimension2) {
-		List<Line> lines = new ArrayList<Line>();
-		double pos = dPos - cellSize;
-		while (pos < dimension1) {
-			Line line;
-			if (vertical) {
-				line = new Line(pos, -dimension2, pos, dimension2);
-			} else {
-				line = new Line(-dimension2, pos, dimension2, pos);
-			}
-			line.setStroke(Color.GREY);
-			if (!adjustLineWidthToScale) {
-				line.setStrokeWidth(lineWidth / scale);
-			} else {
-				line.setStrokeWidth(lineWidth);
+
+	/**
+	 * Draws the tile the grid repeats. Lines that keep their width on screen are drawn finer
+	 * than one of the grid's units when zoomed in, so the tile gets more pixels per unit.
+	 */
+	private void makeTile() {
+		lineThickness = adjustLineWidthToScale ? lineWidth : lineWidth / scale;
+		int pixelsPerUnit = adjustLineWidthToScale ? 1 : (int) Math.max(1, Math.ceil(scale));
+		int size = cellSize * pixelsPerUnit;
+		int line = (int) Math.max(1, Math.min(size, Math.round(lineThickness * pixelsPerUnit)));
+		tile = new WritableImage(size, size);
+		PixelWriter writer = tile.getPixelWriter();
+		for (int i = 0; i < size; i++) {
+			for (int j = 0; j < line; j++) {
+				writer.setColor(i, j, Color.GREY);
+				writer.setColor(j, i, Color.GREY);
 			}
-			lines.add(line);
-			pos+= cellSize;
 		}
-		return lines;
+		updatePattern();
+	}
+
+	/**
+	 * Lines up the pattern with the scroll position, each line centred where it falls.
+	 * Once the grid has faded out the rectangle is left empty, which keeps its bounds as they are.
+	 */
+	private void updatePattern() {
+		if (getOpacity() == 0) {
+			area.setFill(null);
+		} else {
+			area.setFill(new ImagePattern(tile, dx - lineThickness / 2, dy - lineThickness / 2, cellSize, cellSize, false));
+		}
 	}
-	
-	/** 
+
+	/**
 	 * Scrolls the grid by the specified change in x and y
 	 * @param x
 	 * @param y
@@ -77,21 +94,30 @@ public class GridBackground extends Parent {
 	public void scroll(double dx, double dy) {
 		this.dx = (this.dx + dx) % cellSize;
 		this.dy = (this.dy + dy) % cellSize;
-		construct();
+		updatePattern();
 	}
-	
+
 	public void adjustLineWidthToScale(boolean value) {
-		adjustLineWidthToScale = value;
+		if (adjustLineWidthToScale != value) {
+			adjustLineWidthToScale = value;
+			makeTile();
+		}
 	}
-	
+
 	/**
-	 * Scales the grid whilst maintaining a consistent lineWidth
+	 * Scales the grid whilst maintaining a consistent lineWidth, and fades it out as the cells get small
 	 * @param scaleBy
 	 */
 	public void scale(double scaleBy) {
 		if (scale != scaleBy) {
 			scale = scaleBy;
-			construct();
+			double cellPixels = cellSize * scale;
+			setOpacity(Math.max(0, Math.min(1, (cellPixels - FADE_TO) / (FADE_FROM - FADE_TO))));
+			if (!adjustLineWidthToScale) {
+				makeTile();
+			} else {
+				updatePattern();
+			}
 		}
 	}
 }
@@ -0,0 +1,608 @@
+import java.util.Arrays;
+
+/**
+ * Engine using Gosper's HashLife algorithm.
+ * <p>
+ * The universe is a quadtree whose nodes are canonicalised in a hash table, so identical
+ * regions anywhere in space or time are the same Node object. Each node memoises the
+ * result of advancing its centre, which lets regular patterns be advanced by 2^k
+ * generations in roughly the time it takes to step them once.
+ * <p>
+ * The node table is bounded: once it holds more than maxNodes nodes, a sweep keeps only the
+ * nodes reachable from the current universe (and, if there is room, their memoised results)
+ * and lets the rest be garbage collected. The table is checked after every jump and also
+ * during one, where the nodes still being advanced are kept as well, so a single large jump
+ * cannot grow it without limit. A node swept while one of the recursive steps still holds it
+ * is no longer shared with equal regions made later, which only costs some memoised results.
+ * If more than maxNodes nodes are still in use after a sweep, the next sweep waits until the
+ * table has doubled, so that sweeps do not follow each other on every recursive step.
+ * @author Dirglehurbleherb
+ */
+public class HashLifeEngine implements LifeEngine {
+	private static final int DEFAULT_MAX_NODES = 1 << 20;
+	private static final int MIN_ROOT_LEVEL = 3;
+	/**
+	 * Largest jump, as a power of two. The root is expanded to three levels above the jump
+	 * before it is taken, and the root left afterwards has to be less than 2^63 cells wide.
+	 */
+	public static final int MAX_STEP_LOG = 60;
+
+	/** A square of 2^level by 2^level cells. Level 0 nodes are single cells. */
+	private static final class Node {
+		final Node nw, ne, sw, se;
+		final int level;
+		final long population;
+		final int id;
+		final int hash;
+		Node next; //hash table chain
+		Node result; //centre advanced by 2^resultLog generations
+		int resultLog = -1;
+		int mark;
+
+		Node(int id, int level, long population) {
+			this.nw = this.ne = this.sw = this.se = null;
+			this.level = level;
+			this.population = population;
+			this.id = id;
+			this.hash = id;
+		}
+
+		Node(int id, Node nw, Node ne, Node sw, Node se) {
+			this.nw = nw;
+			this.ne = ne;
+			this.sw = sw;
+			this.se = se;
+			this.level = nw.level + 1;
+			this.population = nw.population + ne.population + sw.population + se.population;
+			this.id = id;
+			this.hash = hashOf(nw, ne, sw, se);
+		}
+	}
+
+	private static final Node DEAD = new Node(0, 0, 0);
+	private static final Node ALIVE = new Node(1, 0, 1);
+
+	private final int maxNodes;
+	/** Table size at which a sweep is run during a jump. */
+	private int collectAt;
+	/** The nodes whose successors are being worked out, outermost first, kept by sweeps during a jump. */
+	private Node[] pending = new Node[64];
+	private int pendingCount;
+	private Node[] buckets = new Node[1 << 16];
+	private int nodeCount;
+	private int nextId = 2;
+	private int markEpoch;
+	private Node[] emptyNodes = new Node[64];
+	private Node root;
+	private int stepLog;
+	private Rule rule = Rule.CONWAY;
+
+	public HashLifeEngine() {
+		this(DEFAULT_MAX_NODES);
+	}
+
+	/**
+	 * @param maxNodes number of canonical nodes kept before a sweep is run
+	 */
+	public HashLifeEngine(int maxNodes) {
+		this.maxNodes = maxNodes;
+		collectAt = maxNodes;
+		root = empty(MIN_ROOT_LEVEL);
+	}
+
+	/**
+	 * Sets how many generations step() advances by, as a power of two.
+	 * @param log2 step() will advance 2^log2 generations
+	 */
+	public void setStepLog(int log2) {
+		if (log2 < 0 || log2 > MAX_STEP_LOG) {
+			throw new IllegalArgumentException("Step must be between 2^0 and 2^" + MAX_STEP_LOG + " generations");
+		}
+		stepLog = log2;
+	}
+
+	public int getStepLog() {
+		return stepLog;
+	}
+
+	/** Advances the universe by 2^stepLog generations (1 unless changed with setStepLog). */
+	@Override
+	public void step() {
+		advancePowerOfTwo(stepLog);
+	}
+
+	/**
+	 * Advances by any number of generations using one power-of-two jump per set bit.
+	 * @throws ArithmeticException if cells would end up off the int grid, in which case the
+	 * universe is left as it was before any of the jumps
+	 */
+	@Override
+	public void advance(long generations) {
+		Node start = root;
+		try {
+			for (int log2 = 0; log2 < MAX_STEP_LOG && generations >>> log2 != 0; log2++) {
+				if (((generations >>> log2) & 1) != 0) {
+					advancePowerOfTwo(log2);
+				}
+			}
+			//the bits above the largest jump are made up of several of them
+			for (long jumps = generations >>> MAX_STEP_LOG; jumps > 0; jumps--) {
+				advancePowerOfTwo(MAX_STEP_LOG);
+			}
+		} catch (ArithmeticException e) {
+			root = start;
+			throw e;
+		}
+	}
+
+	/**
+	 * Advances the universe by 2^log2 generations in one call.
+	 * @throws IllegalArgumentException if log2 is negative or more than MAX_STEP_LOG
+	 * @throws ArithmeticException if cells would end up off the int grid, in which case the universe is left as it was
+	 */
+	public void advancePowerOfTwo(int log2) {
+		if (log2 < 0 || log2 > MAX_STEP_LOG) {
+			throw new IllegalArgumentException("Step must be between 2^0 and 2^" + MAX_STEP_LOG + " generations");
+		}
+		//the pattern must sit well inside the root so nothing escapes the centre that is returned
+		Node node = root;
+		while (node.level < log2 + 2 || !isPadded(node)) {
+			node = expand(node);
+		}
+		node = successor(expand(node), log2);
+		long half = 1L << (node.level - 1);
+		if (populationInIntGrid(node, -half, -half) != node.population) {
+			throw new ArithmeticException("Cells would leave the int grid after 2^" + log2 + " generations");
+		}
+		root = node;
+		if (nodeCount > maxNodes) {
+			collect();
+		}
+	}
+
+	/**
+	 * Counts the live cells of the node, whose top left corner is at (left, top), that lie on the int grid.
+	 */
+	private static long populationInIntGrid(Node node, long left, long top) {
+		long width = 1L << node.level;
+		if (node.population == 0 || left > Integer.MAX_VALUE || top > Integer.MAX_VALUE
+				|| left + width <= Integer.MIN_VALUE || top + width <= Integer.MIN_VALUE) {
+			return 0;
+		}
+		if (left >= Integer.MIN_VALUE && top >= Integer.MIN_VALUE
+				&& left + width - 1 <= Integer.MAX_VALUE && top + width - 1 <= Integer.MAX_VALUE) {
+			return node.population;
+		}
+		long size = width >> 1;
+		return populationInIntGrid(node.nw, left, top) + populationInIntGrid(node.ne, left + size, top)
+				+ populationInIntGrid(node.sw, left, top + size) + populationInIntGrid(node.se, left + size, top + size);
+	}
+
+	/** True if every live cell is inside the centre 1/16th of the node. */
+	private static boolean isPadded(Node node) {
+		return node.nw.se.se.population + node.ne.sw.sw.population
+				+ node.sw.ne.ne.population + node.se.nw.nw.population == node.population;
+	}
+
+	/** Returns a node one level up with the given node in its centre. */
+	private Node expand(Node node) {
+		Node border = empty(node.level - 1);
+		return join(
+				join(border, border, border, node.nw),
+				join(border, border, node.ne, border),
+				join(border, node.sw, border, border),
+				join(node.se, border, border, border));
+	}
+
+	/**
+	 * Returns the centre of the node (one level down) advanced by 2^log2 generations,
+	 * where log2 is capped at level - 2.
+	 */
+	private Node successor(Node node, int log2) {
+		if (node.population == 0) {
+			return node.nw;
+		}
+		int j = Math.min(log2, node.level - 2);
+		if (node.resultLog == j) {
+			return node.result;
+		}
+		if (nodeCount > collectAt) {
+			collect();
+		}
+		if (pendingCount == pending.length) {
+			pending = Arrays.copyOf(pending, pendingCount * 2);
+		}
+		pending[pendingCount++] = node;
+		Node result;
+		if (node.level == 2) {
+			result = lifeFourByFour(node);
+		} else {
+			//nine overlapping sub-squares, each one level down
+			Node c1 = successor(node.nw, j);
+			Node c2 = successor(join(node.nw.ne, node.ne.nw, node.nw.se, node.ne.sw), j);
+			Node c3 = successor(node.ne, j);
+			Node c4 = successor(join(node.nw.sw, node.nw.se, node.sw.nw, node.sw.ne), j);
+			Node c5 = successor(join(node.nw.se, node.ne.sw, node.sw.ne, node.se.nw), j);
+			Node c6 = successor(join(node.ne.sw, node.ne.se, node.se.nw, node.se.ne), j);
+			Node c7 = successor(node.sw, j);
+			Node c8 = successor(join(node.sw.ne, node.se.nw, node.sw.se, node.se.sw), j);
+			Node c9 = successor(node.se, j);
+			if (j < node.level - 2) {
+				//already advanced far enough: just take the centres
+				result = join(
+						join(c1.se, c2.sw, c4.ne, c5.nw),
+						join(c2.se, c3.sw, c5.ne, c6.nw),
+						join(c4.se, c5.sw, c7.ne, c8.nw),
+						join(c5.se, c6.sw, c8.ne, c9.nw));
+			} else {
+				//full speed: advance a second time to reach 2^(level-2) generations
+				result = join(
+						successor(join(c1, c2, c4, c5), j),
+						successor(join(c2, c3, c5, c6), j),
+						successor(join(c4, c5, c7, c8), j),
+						successor(join(c5, c6, c8, c9), j));
+			}
+		}
+		pending[--pendingCount] = null;
+		node.result = result;
+		node.resultLog = j;
+		return result;
+	}
+
+	/** Base case: the centre 2x2 of a 4x4 node after one generation. */
+	private Node lifeFourByFour(Node node) {
+		int bits = 0;
+		for (int y = 0; y < 4; y++) {
+			for (int x = 0; x < 4; x++) {
+				if (cellAt(node, x, y) == ALIVE) {
+					bits |= 1 << (y * 4 + x);
+				}
+			}
+		}
+		return join(nextCell(bits, 1, 1), nextCell(bits, 2, 1), nextCell(bits, 1, 2), nextCell(bits, 2, 2));
+	}
+
+	/** Looks up the cell at (x, y) of a 4x4 block of bits in the rule's 3x3 neighbourhood table. */
+	private Node nextCell(int bits, int x, int y) {
+		int neighbourhood = 0;
+		for (int dy = 0; dy < 3; dy++) {
+			neighbourhood |= ((bits >> ((y + dy - 1) * 4 + x - 1)) & 7) << (dy * 3);
+		}
+		return rule.next(neighbourhood) ? ALIVE : DEAD;
+	}
+
+	private static Node cellAt(Node node, int x, int y) {
+		Node quadrant = y < 2 ? (x < 2 ? node.nw : node.ne) : (x < 2 ? node.sw : node.se);
+		int qx = x & 1;
+		int qy = y & 1;
+		return qy == 0 ? (qx == 0 ? quadrant.nw : quadrant.ne) : (qx == 0 ? quadrant.sw : quadrant.se);
+	}
+
+	private static int hashOf(Node nw, Node ne, Node sw, Node se) {
+		int h = nw.id;
+		h = h * 0x9E3779B1 + ne.id;
+		h = h * 0x9E3779B1 + sw.id;
+		h = h * 0x9E3779B1 + se.id;
+		return h ^ (h >>> 16);
+	}
+
+	/** Returns the canonical node with the given quadrants, creating it if necessary. */
+	private Node join(Node nw, Node ne, Node sw, Node se) {
+		int hash = hashOf(nw, ne, sw, se);
+		int index = hash & (buckets.length - 1);
+		for (Node node = buckets[index]; node != null; node = node.next) {
+			if (node.nw == nw && node.ne == ne && node.sw == sw && node.se == se) {
+				return node;
+			}
+		}
+		Node node = new Node(nextId++, nw, ne, sw, se);
+		node.next = buckets[index];
+		buckets[index] = node;
+		if (++nodeCount > buckets.length) {
+			resizeTable(buckets.length * 2);
+		}
+		return node;
+	}
+
+	private void resizeTable(int size) {
+		Node[] old = buckets;
+		buckets = new Node[size];
+		for (Node chain : old) {
+			while (chain != null) {
+				Node next = chain.next;
+				int index = chain.hash & (size - 1);
+				chain.next = buckets[index];
+				buckets[index] = chain;
+				chain = next;
+			}
+		}
+	}
+
+	private Node empty(int level) {
+		if (level == 0) {
+			return DEAD;
+		}
+		if (emptyNodes[level] == null) {
+			Node child = empty(level - 1);
+			emptyNodes[level] = join(child, child, child, child);
+		}
+		return emptyNodes[level];
+	}
+
+	/**
+	 * Sweeps the node table, keeping the current universe, the nodes being advanced, the empty
+	 * nodes and, while there is room, the memoised results hanging off them. Everything else is
+	 * left for the garbage collector.
+	 */
+	private void collect() {
+		markRoots(true);
+		rebuild();
+		if (nodeCount > maxNodes / 2) {
+			//results were keeping too much alive; drop them all and sweep again
+			clearResults();
+			markRoots(false);
+			rebuild();
+		}
+		collectAt = Math.max(maxNodes, nodeCount * 2);
+	}
+
+	private void markRoots(boolean withResults) {
+		markEpoch++;
+		mark(root, withResults);
+		for (int i = 0; i < pendingCount; i++) {
+			mark(pending[i], withResults);
+		}
+		for (Node node : emptyNodes) {
+			if (node != null) {
+				mark(node, false);
+			}
+		}
+	}
+
+	private void mark(Node node, boolean withResults) {
+		if (node.level == 0 || node.mark == markEpoch) {
+			return;
+		}
+		node.mark = markEpoch;
+		mark(node.nw, withResults);
+		mark(node.ne, withResults);
+		mark(node.sw, withResults);
+		mark(node.se, withResults);
+		if (withResults && node.result != null) {
+			mark(node.result, true);
+		}
+	}
+
+	/** Rebuilds the table from marked nodes only. */
+	private void rebuild() {
+		Node[] old = buckets;
+		buckets = new Node[old.length];
+		nodeCount = 0;
+		for (Node chain : old) {
+			while (chain != null) {
+				Node next = chain.next;
+				if (chain.mark == markEpoch) {
+					int index = chain.hash & (buckets.length - 1);
+					chain.next = buckets[index];
+					buckets[index] = chain;
+					nodeCount++;
+					if (chain.result != null && chain.result.level > 0 && chain.result.mark != markEpoch) {
+						chain.result = null;
+						chain.resultLog = -1;
+					}
+				}
+				chain = next;
+			}
+		}
+	}
+
+	private void clearResults() {
+		for (Node chain : buckets) {
+			for (Node node = chain; node != null; node = node.next) {
+				node.result = null;
+				node.resultLog = -1;
+			}
+		}
+	}
+
+	/** @return the number of canonical nodes currently held */
+	public int getNodeCount() {
+		return nodeCount;
+	}
+
+	/** Half the width of the root; the root covers -half to half - 1 on both axes. */
+	private long half() {
+		return 1L << (root.level - 1);
+	}
+
+	@Override
+	public boolean isAlive(int x, int y) {
+		long half = half();
+		if (x < -half || x >= half || y < -half || y >= half) {
+			return false;
+		}
+		Node node = root;
+		long left = -half;
+		long top = -half;
+		while (node.level > 0) {
+			if (node.population == 0) {
+				return false;
+			}
+			long size = 1L << (node.level - 1);
+			boolean east = x >= left + size;
+			boolean south = y >= top + size;
+			node = south ? (east ? node.se : node.sw) : (east ? node.ne : node.nw);
+			left += east ? size : 0;
+			top += south ? size : 0;
+		}
+		return node == ALIVE;
+	}
+
+	@Override
+	public void setAlive(int x, int y, boolean alive) {
+		while (x < -half() || x >= half() || y < -half() || y >= half()) {
+			if (!alive) {
+				return;
+			}
+			root = expand(root);
+		}
+		root = set(root, x + half(), y + half(), alive);
+	}
+
+	/** Returns a copy of the node with the cell at (x, y) relative to its top left corner changed. */
+	private Node set(Node node, long x, long y, boolean alive) {
+		if (node.level == 0) {
+			return alive ? ALIVE : DEAD;
+		}
+		long size = 1L << (node.level - 1);
+		if (y < size) {
+			if (x < size) {
+				return join(set(node.nw, x, y, alive), node.ne, node.sw, node.se);
+			}
+			return join(node.nw, set(node.ne, x - size, y, alive), node.sw, node.se);
+		}
+		if (x < size) {
+			return join(node.nw, node.ne, set(node.sw, x, y - size, alive), node.se);
+		}
+		return join(node.nw, node.ne, node.sw, set(node.se, x - size, y - size, alive));
+	}
+
+	@Override
+	public void forEachLive(CellVisitor visitor) {
+		visit(root, -half(), -half(), visitor);
+	}
+
+	private void visit(Node node, long left, long top, CellVisitor visitor) {
+		if (node.population == 0) {
+			return;
+		}
+		if (node.level == 0) {
+			visitor.visit((int) left, (int) top);
+			return;
+		}
+		long size = 1L << (node.level - 1);
+		visit(node.nw, left, top, visitor);
+		visit(node.ne, left + size, top, visitor);
+		visit(node.sw, left, top + size, visitor);
+		visit(node.se, left + size, top + size, visitor);
+	}
+
+	/** Only descends into the quadrants that overlap the area. */
+	@Override
+	public void forEachLiveIn(int minX, int minY, int maxX, int maxY, CellVisitor visitor) {
+		visit(root, -half(), -half(), minX, minY, maxX, maxY, visitor);
+	}
+
+	private void visit(Node node, long left, long top, int minX, int minY, int maxX, int maxY, CellVisitor visitor) {
+		long width = 1L << node.level;
+		if (node.population == 0 || left > maxX || top > maxY || left + width <= minX || top + width <= minY) {
+			return;
+		}
+		if (node.level == 0) {
+			visitor.visit((int) left, (int) top);
+			return;
+		}
+		long size = width >> 1;
+		visit(node.nw, left, top, minX, minY, maxX, maxY, visitor);
+		visit(node.ne, left + size, top, minX, minY, maxX, maxY, visitor);
+		visit(node.sw, left, top + size, minX, minY, maxX, maxY, visitor);
+		visit(node.se, left + size, top + size, minX, minY, maxX, maxY, visitor);
+	}
+
+	/** Every node already knows its population, so the quadtree is only descended to the level of the blocks. */
+	@Override
+	public void forEachBlock(int log2, int minBlockX, int minBlockY, int maxBlockX, int maxBlockY, BlockVisitor visitor) {
+		visitBlocks(root, -half(), -half(), log2, minBlockX, minBlockY, maxBlockX, maxBlockY, visitor);
+	}
+
+	private void visitBlocks(Node node, long left, long top, int log2, int minBlockX, int minBlockY, int maxBlockX,
+			int maxBlockY, BlockVisitor visitor) {
+		long width = 1L << node.level;
+		if (node.population == 0 || left >> log2 > maxBlockX || top >> log2 > maxBlockY
+				|| (left + width - 1) >> log2 < minBlockX || (top + width - 1) >> log2 < minBlockY) {
+			return;
+		}
+		//the root is centred on the origin rather than aligned to its width, so it can straddle blocks
+		if (node.level <= log2 && left >> log2 == (left + width - 1) >> log2 && top >> log2 == (top + width - 1) >> log2) {
+			visitor.visit((int) (left >> log2), (int) (top >> log2), node.population);
+			return;
+		}
+		long size = width >> 1;
+		visitBlocks(node.nw, left, top, log2, minBlockX, minBlockY, maxBlockX, maxBlockY, visitor);
+		visitBlocks(node.ne, left + size, top, log2, minBlockX, minBlockY, maxBlockX, maxBlockY, visitor);
+		visitBlocks(node.sw, left, top + size, log2, minBlockX, minBlockY, maxBlockX, maxBlockY, visitor);
+		visitBlocks(node.se, left + size, top + size, log2, minBlockX, minBlockY, maxBlockX, maxBlockY, visitor);
+	}
+
+	/**
+	 * Finds the bounding box of the live cells from the quadtree, looking only at the quadrants
+	 * along each edge, so the cost follows how far the cells spread rather than how many there are.
+	 * @return minX, minY, maxX and maxY, or null if there are no live cells
+	 */
+	public int[] getBounds() {
+		if (root.population == 0) {
+			return null;
+		}
+		long half = half();
+		return new int[] {
+				(int) edge(root, -half, -half, false, false), (int) edge(root, -half, -half, true, false),
+				(int) edge(root, -half, -half, false, true), (int) edge(root, -half, -half, true, true)};
+	}
+
+	/**
+	 * The smallest or largest x, or y if vertical, of the live cells of a node with live cells whose
+	 * top left corner is at (left, top). The quadrants on that side are searched first, and the
+	 * ones opposite only if those are empty.
+	 */
+	private static long edge(Node node, long left, long top, boolean vertical, boolean largest) {
+		if (node.level == 0) {
+			return vertical ? top : left;
+		}
+		long size = 1L << (node.level - 1);
+		int side = largest ? 1 : 0;
+		for (int pass = 0; pass < 2; pass++, side ^= 1) {
+			boolean found = false;
+			long best = 0;
+			for (int i = 0; i < 4; i++) {
+				//quadrant i is east if bit 0 is set and south if bit 1 is
+				Node quadrant = i == 0 ? node.nw : i == 1 ? node.ne : i == 2 ? node.sw : node.se;
+				if ((vertical ? i >> 1 : i & 1) != side || quadrant.population == 0) {
+					continue;
+				}
+				long candidate = edge(quadrant, left + (i & 1) * size, top + (i >> 1) * size, vertical, largest);
+				if (!found || (largest ? candidate > best : candidate < best)) {
+					best = candidate;
+					found = true;
+				}
+			}
+			if (found) {
+				return best;
+			}
+		}
+		throw new IllegalStateException("Empty node");
+	}
+
+	@Override
+	public long getPopulation() {
+		return root.population;
+	}
+
+	@Override
+	public void clear() {
+		root = empty(MIN_ROOT_LEVEL);
+	}
+
+	@Override
+	public void setRule(Rule rule) {
+		if (!rule.equals(this.rule)) {
+			this.rule = rule;
+			//memoised results were worked out under the old rule
+			clearResults();
+		}
+	}
+
+	@Override
+	public Rule getRule() {
+		return rule;
+	}
+}
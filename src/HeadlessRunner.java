@@ -0,0 +1,187 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Runs a game from the command line without starting the JavaFX UI.
+ * <p>
+ * Usage: java HeadlessRunner [-pattern name] [-generations n] [-engine name] [-rule rulestring]
+ * [-board WxH] [-file path] [-soup WxH] [-density d] [-seed n]<br>
+ * Places the named pattern from patterns.gol (a random one if no name is given), runs it for
+ * the given number of generations under the rule (B3/S23 if not given) and prints the final
+ * stats (see GameStats) and how long it took. Once the pattern settles into a cycle, such as a lone glider,
+ * the remaining generations are worked out directly and the cycle is printed too.
+ * <p>
+ * -board sets the size of the board for the "Bounded" and "Torus" engines, and picks "Bounded"
+ * if neither was named. With -file the board is kept off the heap in that file: an existing file
+ * is reopened and carries on from where it was saved (placing a pattern only if one is named),
+ * otherwise a new board of the -board size is created there. The board is saved back to the file
+ * at the end.
+ * <p>
+ * -soup fills a WxH region centred on the origin with random cells instead of the pattern, or
+ * under it if one is named, each alive with the -density (0.5 if not given). The soup is the same
+ * every time for the same -seed, so runs can be repeated; a seed is picked and printed if none is given.
+ * @author Dirglehurbleherb
+ */
+public class HeadlessRunner {
+
+	public static void main(String[] args) {
+		String patternName = null;
+		long generations = 100;
+		String engineName = "Sparse";
+		String rulestring = null;
+		String boardSize = null;
+		Path boardFile = null;
+		String soupSize = null;
+		double density = 0.5;
+		Long seed = null;
+		for (int i = 0; i < args.length; i++) {
+			String option = args[i];
+			if (i + 1 >= args.length) {
+				usage("Missing value for " + option);
+			}
+			String value = args[++i];
+			if (option.equals("-pattern")) {
+				patternName = value;
+			} else if (option.equals("-generations")) {
+				generations = Long.parseLong(value);
+			} else if (option.equals("-engine")) {
+				engineName = value;
+			} else if (option.equals("-rule")) {
+				rulestring = value;
+			} else if (option.equals("-board")) {
+				boardSize = value;
+			} else if (option.equals("-file")) {
+				boardFile = Paths.get(value);
+			} else if (option.equals("-soup")) {
+				soupSize = value;
+			} else if (option.equals("-density")) {
+				density = Double.parseDouble(value);
+			} else if (option.equals("-seed")) {
+				seed = Long.parseLong(value);
+			} else {
+				usage("Unknown option " + option);
+			}
+		}
+		if (!Game.getEngineNames().contains(engineName)) {
+			usage("Unknown engine " + engineName + ", expected one of " + Game.getEngineNames());
+		}
+		boolean torus = engineName.equals("Torus");
+		if ((boardSize != null || boardFile != null) && !torus) {
+			engineName = "Bounded";
+		}
+		int width = 0;
+		int height = 0;
+		int[] soup = null;
+		try {
+			if (boardSize != null) {
+				int[] size = Game.parseSize(boardSize);
+				width = size[0];
+				height = size[1];
+			}
+			if (soupSize != null) {
+				soup = Game.parseSize(soupSize);
+			}
+		} catch (IllegalArgumentException e) {
+			usage(e.getMessage());
+		}
+
+		DenseBoardEngine board = null;
+		boolean reopened = false;
+		try {
+			if (boardFile != null && Files.exists(boardFile)) {
+				board = DenseBoardEngine.open(boardFile);
+				reopened = true;
+			} else if (boardFile != null) {
+				if (boardSize == null) {
+					usage("-board is needed to create " + boardFile);
+				}
+				board = DenseBoardEngine.create(boardFile, width, height, torus);
+			}
+		} catch (IOException | IllegalArgumentException e) {
+			usage(e.getMessage());
+		}
+
+		Game game = null;
+		try {
+			if (board != null) {
+				game = new Game(board);
+			} else if (boardSize != null) {
+				game = new Game(engineName, width, height);
+			} else {
+				game = new Game(engineName);
+			}
+		} catch (IllegalArgumentException e) {
+			usage(e.getMessage());
+		}
+		try {
+			if (rulestring != null || !reopened) {
+				game.setRule(rulestring != null ? rulestring : "B3/S23");
+			}
+		} catch (IllegalArgumentException e) {
+			usage(e.getMessage());
+		}
+		if (board != null && !reopened && patternName == null && soup == null) {
+			game.defineInitialPattern();
+		}
+		if (patternName != null && game.getPattern(patternName) == null) {
+			usage("Unknown pattern " + patternName + ", expected one of " + game.getPatternNames());
+		}
+		if (patternName != null || soup != null) {
+			game.clear();
+		}
+		if (soup != null) {
+			if (seed == null) {
+				seed = System.nanoTime();
+			}
+			long soupStart = System.nanoTime();
+			try {
+				game.placeRandom(seed, density, -soup[0] / 2, -soup[1] / 2, soup[0], soup[1]);
+			} catch (IllegalArgumentException e) {
+				usage(e.getMessage());
+			}
+			System.out.printf("soup: %dx%d, density %s, seed %d (%.3f ms)%n", soup[0], soup[1], density, seed,
+					(System.nanoTime() - soupStart) / 1e6);
+		}
+		if (patternName != null) {
+			game.placePattern(patternName, 0, 0, 0);
+		}
+
+		System.out.println("engine: " + game.getEngineName());
+		System.out.println("rule: " + game.getRule());
+		System.out.println("initial: " + game.getStats());
+		long start = System.nanoTime();
+		try {
+			game.advance(generations);
+		} catch (ArithmeticException e) {
+			System.err.println("Cannot run that far, the cells would leave the grid: " + e.getMessage());
+			System.exit(1);
+		}
+		long elapsed = System.nanoTime() - start;
+
+		System.out.println("generations: " + generations);
+		System.out.println("final: " + game.getStats());
+		if (game.isCycling()) {
+			System.out.println("cycle: period " + game.getCyclePeriod() + ", moving (" + game.getCycleDx() + ", " + game.getCycleDy() + ")");
+		}
+		System.out.printf("time: %.3f ms (%.4f ms/generation)%n", elapsed / 1e6,
+				generations == 0 ? 0 : elapsed / 1e6 / generations);
+
+		if (board != null) {
+			try {
+				board.close();
+			} catch (IOException e) {
+				System.err.println("Could not save the board: " + e.getMessage());
+				System.exit(1);
+			}
+		}
+	}
+
+	private static void usage(String message) {
+		System.err.println(message);
+		System.err.println("Usage: java HeadlessRunner [-pattern name] [-generations n] [-engine name] [-rule rulestring]"
+				+ " [-board WxH] [-file path] [-soup WxH] [-density d] [-seed n]");
+		System.exit(1);
+	}
+}
@@ -0,0 +1,97 @@
+import java.util.Random;
+
+/**
+ * Compares the scalar and vector tile kernels.
+ * <p>
+ * Usage: java KernelBenchmark [size] [generations]<br>
+ * First times the kernels on their own, over random tiles, taking turns for a few rounds so
+ * that neither gains from running after the other has warmed the JIT up. Then fills a size x size
+ * square at 50% density and reports the time per generation of a TiledEngine with each kernel,
+ * which also includes finding and merging the tiles.
+ * @author Dirglehurbleherb
+ */
+public class KernelBenchmark {
+	private static final int WARM_UP_GENERATIONS = 20;
+	private static final int TILES = 256;
+	private static final int ROUNDS = 5;
+	private static final int PASSES = 2000;
+
+	public static void main(String[] args) {
+		int size = args.length > 0 ? Integer.parseInt(args[0]) : 2048;
+		int generations = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+		System.out.println("VectorKernel supported: " + VectorKernel.isSupported());
+		compareKernels();
+		run("scalar", new TiledEngine(null, false), size, generations);
+		if (VectorKernel.isSupported()) {
+			run("vector", new TiledEngine(null, true), size, generations);
+		}
+	}
+
+	private static void compareKernels() {
+		Random random = new Random(42);
+		long[][] centre = new long[TILES][TiledEngine.SIZE + 2];
+		long[][] west = new long[TILES][TiledEngine.SIZE + 2];
+		long[][] east = new long[TILES][TiledEngine.SIZE + 2];
+		for (int t = 0; t < TILES; t++) {
+			for (int r = 0; r < TiledEngine.SIZE + 2; r++) {
+				centre[t][r] = random.nextLong();
+				west[t][r] = random.nextLong();
+				east[t][r] = random.nextLong();
+			}
+		}
+		long[] out = new long[TiledEngine.SIZE];
+		//the vector kernel writes over the columns either side
+		long[] westCopy = new long[TiledEngine.SIZE + 2];
+		long[] eastCopy = new long[TiledEngine.SIZE + 2];
+		long check = 0;
+		for (int round = 0; round < ROUNDS; round++) {
+			long start = System.nanoTime();
+			for (int pass = 0; pass < PASSES; pass++) {
+				for (int t = 0; t < TILES; t++) {
+					long[] c = centre[t];
+					long[] w = west[t];
+					long[] e = east[t];
+					for (int r = 0; r < TiledEngine.SIZE; r++) {
+						out[r] = TiledEngine.nextRow(c[r], w[r], e[r], c[r + 1], w[r + 1], e[r + 1], c[r + 2], w[r + 2], e[r + 2], Rule.CONWAY);
+						check += Long.bitCount(out[r]);
+					}
+				}
+			}
+			long middle = System.nanoTime();
+			for (int pass = 0; pass < PASSES; pass++) {
+				for (int t = 0; t < TILES; t++) {
+					System.arraycopy(west[t], 0, westCopy, 0, westCopy.length);
+					System.arraycopy(east[t], 0, eastCopy, 0, eastCopy.length);
+					check -= VectorKernel.nextRows(centre[t], westCopy, eastCopy, out, Rule.CONWAY);
+				}
+			}
+			long end = System.nanoTime();
+			double tiles = (double) PASSES * TILES;
+			System.out.printf("kernels alone, round %d: scalar %.1f ns/tile, vector %.1f ns/tile%n",
+					round + 1, (middle - start) / tiles, (end - middle) / tiles);
+		}
+		if (check != 0) {
+			System.out.println("The kernels disagree");
+		}
+	}
+
+	private static void run(String name, TiledEngine engine, int size, int generations) {
+		Random random = new Random(42);
+		for (int y = 0; y < size; y++) {
+			for (int x = 0; x < size; x++) {
+				if (random.nextBoolean()) {
+					engine.setAlive(x, y, true);
+				}
+			}
+		}
+		for (int i = 0; i < WARM_UP_GENERATIONS; i++) {
+			engine.step();
+		}
+		long start = System.nanoTime();
+		for (int i = 0; i < generations; i++) {
+			engine.step();
+		}
+		double millis = (System.nanoTime() - start) / 1e6 / generations;
+		System.out.printf("%s: %.3f ms/generation, population %d%n", name, millis, engine.getPopulation());
+	}
+}
@@ -0,0 +1,142 @@
+/**
+ * The simulation behind a {@link Game}.
+ * <p>
+ * An engine holds the live cells of an unbounded grid in integer grid coordinates
+ * and advances them one generation at a time. Game keeps the Cell objects that are
+ * displayed and asks the engine which cells are alive after each step.
+ * @author Dirglehurbleherb
+ */
+public interface LifeEngine {
+
+	/** Age reported by engines that do not keep track of how long cells have been alive. */
+	int UNKNOWN_AGE = -1;
+
+	/** Advances the universe by one generation. */
+	void step();
+
+	/**
+	 * Advances the universe by the given number of generations.
+	 * Engines that can skip ahead override this; the default steps one generation at a time.
+	 */
+	default void advance(long generations) {
+		for (long i = 0; i < generations; i++) {
+			step();
+		}
+	}
+
+	/**
+	 * @return true if the cell at the grid position is alive
+	 */
+	boolean isAlive(int x, int y);
+
+	/**
+	 * Brings the cell at the grid position to life or kills it.
+	 */
+	void setAlive(int x, int y, boolean alive);
+
+	/**
+	 * Brings to life the cells of row y from x to x + 63 whose bits are set, bit i standing for
+	 * the cell at x + i. Cells whose bits are clear are left as they are.
+	 */
+	default void setAliveBits(int x, int y, long bits) {
+		while (bits != 0) {
+			setAlive(x + Long.numberOfTrailingZeros(bits), y, true);
+			bits &= bits - 1;
+		}
+	}
+
+	/**
+	 * Calls the visitor once for every live cell, in no particular order.
+	 */
+	void forEachLive(CellVisitor visitor);
+
+	/**
+	 * Calls the visitor once for every live cell with its age and neighbour count.
+	 * Engines that record these while stepping override this; the default reports
+	 * {@link #UNKNOWN_AGE} and counts each cell's neighbours with {@link #isAlive}.
+	 */
+	default void forEachLiveState(CellStateVisitor visitor) {
+		forEachLive((x, y) -> {
+			int neighbours = 0;
+			for (int i = 0; i < CellKey.NEIGHBOUR_DX.length; i++) {
+				if (isAlive(x + CellKey.NEIGHBOUR_DX[i], y + CellKey.NEIGHBOUR_DY[i])) {
+					neighbours++;
+				}
+			}
+			visitor.visit(x, y, UNKNOWN_AGE, neighbours);
+		});
+	}
+
+	/**
+	 * Calls the visitor once for every live cell from (minX, minY) to (maxX, maxY) inclusive,
+	 * e.g. the cells in view. Engines that can find the cells in an area without looking at the
+	 * rest override this; the default filters forEachLive.
+	 */
+	default void forEachLiveIn(int minX, int minY, int maxX, int maxY, CellVisitor visitor) {
+		forEachLive((x, y) -> {
+			if (x >= minX && x <= maxX && y >= minY && y <= maxY) {
+				visitor.visit(x, y);
+			}
+		});
+	}
+
+	/**
+	 * Calls the visitor once for every live cell from (minX, minY) to (maxX, maxY) inclusive
+	 * with its age and neighbour count. The default does for the cells of forEachLiveIn what
+	 * the default forEachLiveState does, so engines that override forEachLiveState override
+	 * this too.
+	 */
+	default void forEachLiveStateIn(int minX, int minY, int maxX, int maxY, CellStateVisitor visitor) {
+		forEachLiveIn(minX, minY, maxX, maxY, (x, y) -> {
+			int neighbours = 0;
+			for (int i = 0; i < CellKey.NEIGHBOUR_DX.length; i++) {
+				if (isAlive(x + CellKey.NEIGHBOUR_DX[i], y + CellKey.NEIGHBOUR_DY[i])) {
+					neighbours++;
+				}
+			}
+			visitor.visit(x, y, UNKNOWN_AGE, neighbours);
+		});
+	}
+
+	/**
+	 * Reports the population of every block of 2^log2 by 2^log2 cells from block (minBlockX, minBlockY)
+	 * to block (maxBlockX, maxBlockY) inclusive that has live cells, block (bx, by) starting at
+	 * cell (bx * 2^log2, by * 2^log2). The blocks have to lie within the int grid.
+	 * <p>
+	 * Engines that keep counts of live cells by area override this so that the cost follows
+	 * the number of blocks rather than of cells; the default counts the cells of forEachLiveIn
+	 * one at a time.
+	 */
+	default void forEachBlock(int log2, int minBlockX, int minBlockY, int maxBlockX, int maxBlockY, BlockVisitor visitor) {
+		forEachLiveIn(minBlockX << log2, minBlockY << log2, (int) (((maxBlockX + 1L) << log2) - 1),
+				(int) (((maxBlockY + 1L) << log2) - 1), (x, y) -> visitor.visit(x >> log2, y >> log2, 1));
+	}
+
+	/**
+	 * Calls the visitor once for every cell that was born or died in the last step.
+	 * Cells changed with setAlive since then are not reported reliably.
+	 * Engines that keep the previous generation override this; the default reports nothing.
+	 * @return false if the engine cannot report changes
+	 */
+	default boolean forEachChange(CellChangeVisitor visitor) {
+		return false;
+	}
+
+	/**
+	 * @return the number of live cells
+	 */
+	long getPopulation();
+
+	/** Kills every cell. */
+	void clear();
+
+	/**
+	 * Sets the birth and survival rule used from the next step on. Engines start with Conway's B3/S23.
+	 */
+	void setRule(Rule rule);
+
+	/**
+	 * @return the rule the engine is stepping with
+	 */
+	Rule getRule();
+}
@@ -0,0 +1,277 @@
+import java.util.Arrays;
+
+/**
+ * The bounding box of the live cells, kept up to date from the cells born and killed each
+ * generation rather than found again from all of them.
+ * <p>
+ * The live cells of every row and column are counted. A birth only widens the box. A death only
+ * moves an edge when it empties the row or column on that edge, and the edge then moves in to
+ * the nearest line that still has cells, which is looked for line by line and, if the gap is
+ * wider than the number of lines with cells, among those lines instead. Either way the cost
+ * follows the number of lines with cells, not the number of cells.
+ * <p>
+ * The box can also be set outright, for engines that can find it faster than they can report
+ * their changes; the counts are then dropped until the cells are counted again.
+ * @author Dirglehurbleherb
+ */
+public class LiveBounds {
+	private final LineCounts rows = new LineCounts();
+	private final LineCounts columns = new LineCounts();
+	private boolean counted = true;
+	private int minX;
+	private int minY;
+	private int maxX;
+	private int maxY;
+
+	public LiveBounds() {
+		clear();
+	}
+
+	/** Empties the box, as for no live cells. */
+	public void clear() {
+		rows.clear();
+		columns.clear();
+		counted = true;
+		empty();
+	}
+
+	private void empty() {
+		minX = Integer.MAX_VALUE;
+		minY = Integer.MAX_VALUE;
+		maxX = Integer.MIN_VALUE;
+		maxY = Integer.MIN_VALUE;
+	}
+
+	/** Counts every live cell of the engine again. */
+	public void recount(LifeEngine engine) {
+		clear();
+		engine.forEachLive(this::add);
+	}
+
+	/**
+	 * Sets the box without counting the cells in it, after which add and remove cannot be used
+	 * until the cells are counted again.
+	 */
+	public void set(int minX, int minY, int maxX, int maxY) {
+		rows.clear();
+		columns.clear();
+		counted = false;
+		this.minX = minX;
+		this.minY = minY;
+		this.maxX = maxX;
+		this.maxY = maxY;
+	}
+
+	/**
+	 * @return false if the box was set without counting the cells, so births and deaths cannot be applied to it
+	 */
+	public boolean isCounted() {
+		return counted;
+	}
+
+	/** Adds a cell that has been born. */
+	public void add(int x, int y) {
+		rows.increment(y);
+		columns.increment(x);
+		minX = Math.min(minX, x);
+		maxX = Math.max(maxX, x);
+		minY = Math.min(minY, y);
+		maxY = Math.max(maxY, y);
+	}
+
+	/** Takes away a cell that has died, which has to have been added. */
+	public void remove(int x, int y) {
+		boolean rowEmptied = rows.decrement(y) == 0;
+		boolean columnEmptied = columns.decrement(x) == 0;
+		if (rows.size() == 0) {
+			empty();
+			return;
+		}
+		if (rowEmptied) {
+			if (y == minY) {
+				minY = nearestLine(rows, y, 1);
+			}
+			if (y == maxY) {
+				maxY = nearestLine(rows, y, -1);
+			}
+		}
+		if (columnEmptied) {
+			if (x == minX) {
+				minX = nearestLine(columns, x, 1);
+			}
+			if (x == maxX) {
+				maxX = nearestLine(columns, x, -1);
+			}
+		}
+	}
+
+	/**
+	 * The nearest line past an emptied edge line, going in the direction of step (1 or -1), that
+	 * has cells. Every line with cells is on that side of it, so after as many steps as there are
+	 * such lines it is quicker to take the smallest or largest of them.
+	 */
+	private static int nearestLine(LineCounts lines, int edge, int step) {
+		long line = edge;
+		for (int i = 0; i < lines.size(); i++) {
+			line += step;
+			if (lines.get((int) line) != 0) {
+				return (int) line;
+			}
+		}
+		return step > 0 ? lines.smallest() : lines.largest();
+	}
+
+	public int getMinX() {
+		return minX;
+	}
+
+	public int getMinY() {
+		return minY;
+	}
+
+	public int getMaxX() {
+		return maxX;
+	}
+
+	public int getMaxY() {
+		return maxY;
+	}
+
+	/**
+	 * Open-addressing table of the number of live cells on each row or column that has any.
+	 * A count of zero marks an empty slot; a line whose count drops to zero is taken out, moving
+	 * the entries after it back so that no tombstones are left.
+	 */
+	private static final class LineCounts {
+		private static final int MIN_CAPACITY = 16;
+
+		private int[] lines;
+		private int[] counts;
+		private int size;
+		private int mask;
+
+		LineCounts() {
+			allocate(MIN_CAPACITY);
+		}
+
+		private void allocate(int capacity) {
+			lines = new int[capacity];
+			counts = new int[capacity];
+			mask = capacity - 1;
+		}
+
+		private int slotOf(int line) {
+			int h = line * 0x9E3779B1;
+			return (h ^ (h >>> 16)) & mask;
+		}
+
+		int size() {
+			return size;
+		}
+
+		int get(int line) {
+			for (int slot = slotOf(line); counts[slot] != 0; slot = (slot + 1) & mask) {
+				if (lines[slot] == line) {
+					return counts[slot];
+				}
+			}
+			return 0;
+		}
+
+		void increment(int line) {
+			int slot = slotOf(line);
+			while (counts[slot] != 0) {
+				if (lines[slot] == line) {
+					counts[slot]++;
+					return;
+				}
+				slot = (slot + 1) & mask;
+			}
+			lines[slot] = line;
+			counts[slot] = 1;
+			if (++size > lines.length / 2) {
+				rehash(lines.length * 2);
+			}
+		}
+
+		/**
+		 * @return the count left on the line
+		 * @throws IllegalStateException if the line has no cells counted
+		 */
+		int decrement(int line) {
+			for (int slot = slotOf(line); counts[slot] != 0; slot = (slot + 1) & mask) {
+				if (lines[slot] == line) {
+					int count = --counts[slot];
+					if (count == 0) {
+						removeAt(slot);
+					}
+					return count;
+				}
+			}
+			throw new IllegalStateException("No cells counted on line " + line);
+		}
+
+		/** Empties the slot, then moves back each entry after it that would otherwise no longer be found. */
+		private void removeAt(int slot) {
+			int hole = slot;
+			for (int next = (hole + 1) & mask; counts[next] != 0; next = (next + 1) & mask) {
+				//the entry can fill the hole if the hole lies between its home slot and where it is
+				if (((next - slotOf(lines[next])) & mask) >= ((next - hole) & mask)) {
+					lines[hole] = lines[next];
+					counts[hole] = counts[next];
+					hole = next;
+				}
+			}
+			counts[hole] = 0;
+			size--;
+			if (size < lines.length / 8 && lines.length > MIN_CAPACITY) {
+				rehash(lines.length / 2);
+			}
+		}
+
+		private void rehash(int capacity) {
+			int[] oldLines = lines;
+			int[] oldCounts = counts;
+			allocate(capacity);
+			for (int slot = 0; slot < oldLines.length; slot++) {
+				if (oldCounts[slot] != 0) {
+					int i = slotOf(oldLines[slot]);
+					while (counts[i] != 0) {
+						i = (i + 1) & mask;
+					}
+					lines[i] = oldLines[slot];
+					counts[i] = oldCounts[slot];
+				}
+			}
+		}
+
+		int smallest() {
+			int smallest = Integer.MAX_VALUE;
+			for (int slot = 0; slot < lines.length; slot++) {
+				if (counts[slot] != 0) {
+					smallest = Math.min(smallest, lines[slot]);
+				}
+			}
+			return smallest;
+		}
+
+		int largest() {
+			int largest = Integer.MIN_VALUE;
+			for (int slot = 0; slot < lines.length; slot++) {
+				if (counts[slot] != 0) {
+					largest = Math.max(largest, lines[slot]);
+				}
+			}
+			return largest;
+		}
+
+		void clear() {
+			if (lines.length > MIN_CAPACITY) {
+				allocate(MIN_CAPACITY);
+			} else {
+				Arrays.fill(counts, 0);
+			}
+			size = 0;
+		}
+	}
+}
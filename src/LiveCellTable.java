@@ -0,0 +1,186 @@
+import java.util.Arrays;
+
+/**
+ * Open-addressing table of live cells keyed by packed cell keys (see {@link CellKey}),
+ * holding each cell's age and neighbour count in primitive arrays alongside the key.
+ * <p>
+ * Probing and removal work as in {@link LongCellMap}.
+ * @author Dirglehurbleherb
+ */
+public class LiveCellTable {
+	private static final int MIN_CAPACITY = 16;
+	/** How many times the cells it held a table can have room for before clearing shrinks it. */
+	private static final int SHRINK_RATIO = 8;
+
+	private long[] keys;
+	private boolean[] used;
+	private int[] ages;
+	private byte[] neighbours;
+	private int size;
+	private int mask;
+	private int resizeAt;
+
+	public LiveCellTable() {
+		allocate(MIN_CAPACITY);
+	}
+
+	private void allocate(int capacity) {
+		keys = new long[capacity];
+		used = new boolean[capacity];
+		ages = new int[capacity];
+		neighbours = new byte[capacity];
+		mask = capacity - 1;
+		resizeAt = capacity / 2;
+	}
+
+	private int slotOf(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32)) & mask;
+	}
+
+	/**
+	 * @return the slot holding the key, or -1 if it is not in the table
+	 */
+	public int indexOf(long key) {
+		int slot = slotOf(key);
+		while (used[slot]) {
+			if (keys[slot] == key) {
+				return slot;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return -1;
+	}
+
+	public boolean containsKey(long key) {
+		return indexOf(key) >= 0;
+	}
+
+	/**
+	 * Adds the cell, or updates its age and neighbour count if it is already present.
+	 */
+	public void put(long key, int age, int neighbourCount) {
+		int slot = slotOf(key);
+		while (used[slot]) {
+			if (keys[slot] == key) {
+				ages[slot] = age;
+				neighbours[slot] = (byte) neighbourCount;
+				return;
+			}
+			slot = (slot + 1) & mask;
+		}
+		keys[slot] = key;
+		used[slot] = true;
+		ages[slot] = age;
+		neighbours[slot] = (byte) neighbourCount;
+		if (++size > resizeAt) {
+			rehash(keys.length * 2);
+		}
+	}
+
+	/**
+	 * Removes the cell, shifting later entries of its probe chain back into the gap.
+	 * @return true if the cell was present
+	 */
+	public boolean remove(long key) {
+		int gap = indexOf(key);
+		if (gap < 0) {
+			return false;
+		}
+		int next = (gap + 1) & mask;
+		while (used[next]) {
+			int home = slotOf(keys[next]);
+			if (((next - home) & mask) >= ((next - gap) & mask)) {
+				keys[gap] = keys[next];
+				ages[gap] = ages[next];
+				neighbours[gap] = neighbours[next];
+				gap = next;
+			}
+			next = (next + 1) & mask;
+		}
+		used[gap] = false;
+		size--;
+		return true;
+	}
+
+	/**
+	 * Empties the table, shrinking it as {@link LongCountMap#clear} does when it has room for far
+	 * more cells than it held.
+	 */
+	public void clear() {
+		if (size == 0) {
+			return;
+		}
+		int capacity = keys.length;
+		while (capacity > MIN_CAPACITY && capacity > (long) size * SHRINK_RATIO) {
+			capacity >>= 1;
+		}
+		if (capacity != keys.length) {
+			allocate(capacity);
+		} else {
+			Arrays.fill(used, false);
+		}
+		size = 0;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/** Grows the table ahead of time so that adding expectedSize cells never rehashes. */
+	public void ensureCapacity(int expectedSize) {
+		int capacity = keys.length;
+		while (capacity < expectedSize * 2L && capacity < (1 << 30)) {
+			capacity <<= 1;
+		}
+		if (capacity != keys.length) {
+			rehash(capacity);
+		}
+	}
+
+	/*Slot accessors, used in the same way as LongCellMap's.*/
+
+	public int capacity() {
+		return keys.length;
+	}
+
+	public boolean isUsed(int slot) {
+		return used[slot];
+	}
+
+	public long keyAt(int slot) {
+		return keys[slot];
+	}
+
+	public int ageAt(int slot) {
+		return ages[slot];
+	}
+
+	public int neighboursAt(int slot) {
+		return neighbours[slot];
+	}
+
+	public void setNeighboursAt(int slot, int neighbourCount) {
+		neighbours[slot] = (byte) neighbourCount;
+	}
+
+	private void rehash(int newCapacity) {
+		long[] oldKeys = keys;
+		boolean[] oldUsed = used;
+		int[] oldAges = ages;
+		byte[] oldNeighbours = neighbours;
+		allocate(newCapacity);
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldUsed[i]) {
+				int slot = slotOf(oldKeys[i]);
+				while (used[slot]) {
+					slot = (slot + 1) & mask;
+				}
+				keys[slot] = oldKeys[i];
+				used[slot] = true;
+				ages[slot] = oldAges[i];
+				neighbours[slot] = oldNeighbours[i];
+			}
+		}
+	}
+}
@@ -0,0 +1,220 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Open-addressing hash map from packed cell keys (see {@link CellKey}) to values.
+ * <p>
+ * Keys are stored in a primitive long[] and probed linearly, so checking whether a
+ * cell is alive never boxes the key or allocates a Position. Removal uses backward
+ * shifting rather than tombstones so that probe chains stay short.
+ * @author Dirglehurbleherb
+ *
+ * @param <V> the value stored against each cell
+ */
+public class LongCellMap<V> {
+	private static final int MIN_CAPACITY = 16;
+	private static final int SHRINK_RATIO = 8;
+
+	private long[] keys;
+	private Object[] values;
+	private boolean[] used;
+	private int size;
+	private int mask;
+	private int resizeAt;
+
+	public LongCellMap() {
+		this(MIN_CAPACITY);
+	}
+
+	/**
+	 * @param expectedSize number of entries the map should hold before it needs to grow
+	 */
+	public LongCellMap(int expectedSize) {
+		allocate(capacityFor(expectedSize));
+	}
+
+	private static int capacityFor(int expectedSize) {
+		int capacity = MIN_CAPACITY;
+		while (capacity < expectedSize * 2L && capacity < (1 << 30)) {
+			capacity <<= 1;
+		}
+		return capacity;
+	}
+
+	private void allocate(int capacity) {
+		keys = new long[capacity];
+		values = new Object[capacity];
+		used = new boolean[capacity];
+		mask = capacity - 1;
+		resizeAt = capacity / 2;
+	}
+
+	/** Spreads the key bits so that neighbouring cells do not land in neighbouring slots. */
+	private int slotOf(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32)) & mask;
+	}
+
+	private int find(long key) {
+		int slot = slotOf(key);
+		while (used[slot]) {
+			if (keys[slot] == key) {
+				return slot;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return -1 - slot;
+	}
+
+	public boolean containsKey(long key) {
+		return find(key) >= 0;
+	}
+
+	@SuppressWarnings("unchecked")
+	public V get(long key) {
+		int slot = find(key);
+		return slot >= 0 ? (V) values[slot] : null;
+	}
+
+	/**
+	 * Associates the value with the key.
+	 * @return the previous value, or null if the key was not present
+	 */
+	@SuppressWarnings("unchecked")
+	public V put(long key, V value) {
+		int slot = find(key);
+		if (slot >= 0) {
+			V old = (V) values[slot];
+			values[slot] = value;
+			return old;
+		}
+		slot = -1 - slot;
+		keys[slot] = key;
+		values[slot] = value;
+		used[slot] = true;
+		if (++size > resizeAt) {
+			rehash(keys.length * 2);
+		}
+		return null;
+	}
+
+	/**
+	 * Removes the key from the map.
+	 * @return the removed value, or null if the key was not present
+	 */
+	@SuppressWarnings("unchecked")
+	public V remove(long key) {
+		int slot = find(key);
+		if (slot < 0) {
+			return null;
+		}
+		V old = (V) values[slot];
+		//shift later entries of the probe chain back into the gap
+		int gap = slot;
+		int next = (gap + 1) & mask;
+		while (used[next]) {
+			int home = slotOf(keys[next]);
+			if (((next - home) & mask) >= ((next - gap) & mask)) {
+				keys[gap] = keys[next];
+				values[gap] = values[next];
+				gap = next;
+			}
+			next = (next + 1) & mask;
+		}
+		used[gap] = false;
+		values[gap] = null;
+		size--;
+		return old;
+	}
+
+	/** Copies every entry of the other map into this map. */
+	public void putAll(LongCellMap<? extends V> other) {
+		for (int slot = 0; slot < other.capacity(); slot++) {
+			if (other.isUsed(slot)) {
+				put(other.keyAt(slot), other.valueAt(slot));
+			}
+		}
+	}
+
+	/**
+	 * Empties the map, shrinking it as {@link LongCountMap#clear} does when it has room for far
+	 * more entries than it held.
+	 */
+	public void clear() {
+		if (size == 0) {
+			return;
+		}
+		int capacity = keys.length;
+		while (capacity > MIN_CAPACITY && capacity > (long) size * SHRINK_RATIO) {
+			capacity >>= 1;
+		}
+		if (capacity != keys.length) {
+			allocate(capacity);
+		} else {
+			Arrays.fill(used, false);
+			Arrays.fill(values, null);
+		}
+		size = 0;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Returns a snapshot list of the stored values.
+	 */
+	@SuppressWarnings("unchecked")
+	public List<V> values() {
+		List<V> list = new ArrayList<V>(size);
+		for (int slot = 0; slot < used.length; slot++) {
+			if (used[slot]) {
+				list.add((V) values[slot]);
+			}
+		}
+		return list;
+	}
+
+	/*Slot accessors allow the entries to be walked without an iterator object:
+	 * for (int slot = 0; slot < map.capacity(); slot++) if (map.isUsed(slot)) ... */
+
+	public int capacity() {
+		return keys.length;
+	}
+
+	public boolean isUsed(int slot) {
+		return used[slot];
+	}
+
+	public long keyAt(int slot) {
+		return keys[slot];
+	}
+
+	@SuppressWarnings("unchecked")
+	public V valueAt(int slot) {
+		return (V) values[slot];
+	}
+
+	private void rehash(int newCapacity) {
+		long[] oldKeys = keys;
+		Object[] oldValues = values;
+		boolean[] oldUsed = used;
+		allocate(newCapacity);
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldUsed[i]) {
+				int slot = slotOf(oldKeys[i]);
+				while (used[slot]) {
+					slot = (slot + 1) & mask;
+				}
+				keys[slot] = oldKeys[i];
+				values[slot] = oldValues[i];
+				used[slot] = true;
+			}
+		}
+	}
+}
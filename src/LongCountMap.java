@@ -0,0 +1,199 @@
+import java.util.Arrays;
+
+/**
+ * Open-addressing table of counts, such as neighbour counts, keyed by packed cell keys (see {@link CellKey}).
+ * <p>
+ * A count of zero marks an empty slot, so the table needs no separate occupancy array.
+ * A generation step only adds entries and clears the whole table. A count brought down to zero
+ * with {@link #adjust} is taken out, and the entries after it are moved back so that no
+ * tombstones are left.
+ * @author Dirglehurbleherb
+ */
+public class LongCountMap {
+	private static final int MIN_CAPACITY = 16;
+	/** How many times the entries it held a table can have room for before clearing shrinks it. */
+	private static final int SHRINK_RATIO = 8;
+
+	private long[] keys;
+	private int[] counts;
+	private int size;
+	private int mask;
+	private int resizeAt;
+
+	public LongCountMap() {
+		allocate(MIN_CAPACITY);
+	}
+
+	private void allocate(int capacity) {
+		keys = new long[capacity];
+		counts = new int[capacity];
+		mask = capacity - 1;
+		resizeAt = capacity / 2;
+	}
+
+	private int slotOf(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32)) & mask;
+	}
+
+	/**
+	 * Adds one to the count held for the key, inserting it if necessary.
+	 * @return the new count
+	 */
+	public int increment(long key) {
+		int slot = slotOf(key);
+		while (counts[slot] != 0) {
+			if (keys[slot] == key) {
+				return ++counts[slot];
+			}
+			slot = (slot + 1) & mask;
+		}
+		keys[slot] = key;
+		counts[slot] = 1;
+		if (++size > resizeAt) {
+			rehash(keys.length * 2);
+		}
+		return 1;
+	}
+
+	/**
+	 * Adds a positive amount to the count held for the key, inserting it if necessary.
+	 */
+	public void add(long key, int amount) {
+		int slot = slotOf(key);
+		while (counts[slot] != 0) {
+			if (keys[slot] == key) {
+				counts[slot] += amount;
+				return;
+			}
+			slot = (slot + 1) & mask;
+		}
+		keys[slot] = key;
+		counts[slot] = amount;
+		if (++size > resizeAt) {
+			rehash(keys.length * 2);
+		}
+	}
+
+	/**
+	 * Adds an amount, which may be negative, to the count held for the key, inserting the key if
+	 * necessary and taking it out when its count comes to 0.
+	 */
+	public void adjust(long key, int amount) {
+		if (amount == 0) {
+			return;
+		}
+		int slot = slotOf(key);
+		while (counts[slot] != 0) {
+			if (keys[slot] == key) {
+				counts[slot] += amount;
+				if (counts[slot] == 0) {
+					removeAt(slot);
+				}
+				return;
+			}
+			slot = (slot + 1) & mask;
+		}
+		keys[slot] = key;
+		counts[slot] = amount;
+		if (++size > resizeAt) {
+			rehash(keys.length * 2);
+		}
+	}
+
+	/** Empties the slot, then moves back each entry after it that would otherwise no longer be found. */
+	private void removeAt(int slot) {
+		int hole = slot;
+		for (int next = (hole + 1) & mask; counts[next] != 0; next = (next + 1) & mask) {
+			//the entry can fill the hole if the hole lies between its home slot and where it is
+			if (((next - slotOf(keys[next])) & mask) >= ((next - hole) & mask)) {
+				keys[hole] = keys[next];
+				counts[hole] = counts[next];
+				hole = next;
+			}
+		}
+		counts[hole] = 0;
+		size--;
+	}
+
+	/**
+	 * @return the count held for the key, or 0 if it has none
+	 */
+	public int get(long key) {
+		int slot = slotOf(key);
+		while (counts[slot] != 0) {
+			if (keys[slot] == key) {
+				return counts[slot];
+			}
+			slot = (slot + 1) & mask;
+		}
+		return 0;
+	}
+
+	/**
+	 * Empties the table. Filling the counts costs the whole capacity, so a table with room for
+	 * more than {@value #SHRINK_RATIO} times the entries it held is allocated again at a size that
+	 * fits them instead. Clearing then never costs more than a few times what filling the table
+	 * did, and a table that grew for a large population does not stay large once it has shrunk.
+	 */
+	public void clear() {
+		if (size == 0) {
+			return;
+		}
+		int capacity = keys.length;
+		while (capacity > MIN_CAPACITY && capacity > (long) size * SHRINK_RATIO) {
+			capacity >>= 1;
+		}
+		if (capacity != keys.length) {
+			allocate(capacity);
+		} else {
+			Arrays.fill(counts, 0);
+		}
+		size = 0;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/** Grows the table ahead of time so that a step over expectedSize keys never rehashes. */
+	public void ensureCapacity(int expectedSize) {
+		int capacity = keys.length;
+		while (capacity < expectedSize * 2L && capacity < (1 << 30)) {
+			capacity <<= 1;
+		}
+		if (capacity != keys.length) {
+			rehash(capacity);
+		}
+	}
+
+	/*Slot accessors, used in the same way as LongCellMap's; a slot is in use when its count is not 0.*/
+
+	public int capacity() {
+		return keys.length;
+	}
+
+	public long keyAt(int slot) {
+		return keys[slot];
+	}
+
+	public int countAt(int slot) {
+		return counts[slot];
+	}
+
+	private void rehash(int newCapacity) {
+		long[] oldKeys = keys;
+		int[] oldCounts = counts;
+		allocate(newCapacity);
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldCounts[i] != 0) {
+				int slot = slotOf(oldKeys[i]);
+				while (counts[slot] != 0) {
+					slot = (slot + 1) & mask;
+				}
+				keys[slot] = oldKeys[i];
+				counts[slot] = oldCounts[i];
+			}
+		}
+	}
+}
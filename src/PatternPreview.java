@@ -0,0 +1,60 @@
+import java.util.List;
+import java.util.Objects;
+
+import javafx.scene.Group;
+import javafx.scene.Node;
+import javafx.scene.paint.Color;
+
+/**
+ * The outline of the pattern about to be placed, which follows the mouse.
+ * <p>
+ * The Cells of a pattern at a rotation are made once, placed relative to the pattern's corner,
+ * and as the mouse moves only the group is moved, so following the mouse allocates nothing
+ * however large the pattern is. They are made again when another pattern or rotation is chosen.
+ * Hiding the outline keeps its Cells for the next time it is shown.
+ * @author Dirglehurbleherb
+ */
+public class PatternPreview extends Group {
+	private final Game game;
+	private final int cellSize;
+	private String patternKey;
+	private int rotation;
+	private Color colour;
+
+	public PatternPreview(Game game, int cellSize) {
+		this.game = game;
+		this.cellSize = cellSize;
+		setMouseTransparent(true);
+		setVisible(false);
+	}
+
+	/**
+	 * Shows the pattern at the rotation with its corner at the grid position, where clicking would place it.
+	 */
+	public void show(String patternKey, int rotation, int gridX, int gridY) {
+		if (!Objects.equals(patternKey, this.patternKey) || rotation != this.rotation) {
+			List<int[]> pattern = game.rotatePattern(patternKey, rotation);
+			getChildren().clear();
+			for (int[] position : pattern) {
+				getChildren().add(new Cell(cellSize, position[0], position[1]));
+			}
+			this.patternKey = patternKey;
+			this.rotation = rotation;
+			colour = Cell.getCustom();
+		} else if (colour != Cell.getCustom()) {
+			//the outline is drawn in the custom colour, as new Cells are
+			colour = Cell.getCustom();
+			for (Node cell : getChildren()) {
+				((Cell) cell).setFill(colour);
+			}
+		}
+		setTranslateX(gridX * (double) cellSize);
+		setTranslateY(gridY * (double) cellSize);
+		setVisible(true);
+	}
+
+	/** Takes the outline away until it is shown again. */
+	public void hide() {
+		setVisible(false);
+	}
+}
@@ -0,0 +1,145 @@
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A reproducible random fill of a width by height region, each cell alive with the given density.
+ * The same seed, density and size always give the same soup, however many threads fill it.
+ * <p>
+ * The region is cut into 64x64 tiles, taken in rows from the top left. Each tile gets its own
+ * SplittableRandom, split from the seed's in that order before any filling starts, so the
+ * tiles can then be filled in parallel on the common ForkJoinPool. Tiles are filled in batches
+ * to bound the memory a very large soup needs, and placed on the engine a row of 64 cells at
+ * a time (see {@link LifeEngine#setAliveBits}).
+ * <p>
+ * A row of 64 cells is made from a few random longs rather than one random number per cell:
+ * working through the binary digits of the density from the last, a 1 ORs in a random long and
+ * a 0 ANDs one in. Each step halves the chance a bit is clear or set, so every bit ends up set
+ * with the density to 32 binary places, e.g. one long per row for a density of 0.5.
+ * @author Dirglehurbleherb
+ */
+public class RandomSoup {
+	static final int TILE = 64;
+	private static final int DENSITY_BITS = 32;
+	/** Tiles filled before they are placed on the engine. */
+	private static final int TILES_PER_BATCH = 4096;
+	/** Number of tiles below which a parallel task stops splitting and fills its tiles. */
+	private static final int TILES_PER_TASK = 16;
+
+	private final long seed;
+	private final long density;
+	private final int width;
+	private final int height;
+	private final int tilesAcross;
+	private final long tileCount;
+
+	/**
+	 * @param density chance of each cell being alive, from 0 to 1
+	 * @throws IllegalArgumentException if the density is out of range or the region is empty
+	 */
+	public RandomSoup(long seed, double density, int width, int height) {
+		if (!(density >= 0 && density <= 1)) {
+			throw new IllegalArgumentException("Density should be between 0 and 1, not " + density);
+		}
+		if (width <= 0 || height <= 0) {
+			throw new IllegalArgumentException("Soup size should be positive, not " + width + "x" + height);
+		}
+		this.seed = seed;
+		this.density = Math.round(density * (1L << DENSITY_BITS));
+		this.width = width;
+		this.height = height;
+		tilesAcross = (int) ((width + (long) TILE - 1) / TILE);
+		tileCount = tilesAcross * ((height + (long) TILE - 1) / TILE);
+	}
+
+	/**
+	 * Makes the soup's cells alive on the engine, with its top left corner at (x, y).
+	 * Cells that are already alive stay alive.
+	 */
+	public void placeOn(LifeEngine engine, int x, int y) {
+		SplittableRandom random = new SplittableRandom(seed);
+		int batchSize = (int) Math.min(TILES_PER_BATCH, tileCount);
+		SplittableRandom[] randoms = new SplittableRandom[batchSize];
+		long[][] rows = new long[batchSize][TILE];
+		for (long first = 0; first < tileCount; first += batchSize) {
+			int count = (int) Math.min(batchSize, tileCount - first);
+			for (int i = 0; i < count; i++) {
+				randoms[i] = random.split();
+			}
+			FillTask task = new FillTask(first, randoms, rows, 0, count);
+			if (count > TILES_PER_TASK) {
+				ForkJoinPool.commonPool().invoke(task);
+			} else {
+				task.compute();
+			}
+			for (int i = 0; i < count; i++) {
+				long tile = first + i;
+				int tileX = (int) (tile % tilesAcross);
+				int tileY = (int) (tile / tilesAcross);
+				for (int r = 0; r < TILE; r++) {
+					if (rows[i][r] != 0) {
+						engine.setAliveBits(x + tileX * TILE, y + tileY * TILE + r, rows[i][r]);
+					}
+				}
+			}
+		}
+	}
+
+	/** Fills the rows of one tile, leaving those outside the region empty. */
+	private void fillTile(long tile, SplittableRandom random, long[] rows) {
+		int columns = Math.min(TILE, width - (int) (tile % tilesAcross) * TILE);
+		int rowCount = Math.min(TILE, height - (int) (tile / tilesAcross) * TILE);
+		long columnMask = columns == TILE ? -1L : (1L << columns) - 1;
+		for (int r = 0; r < TILE; r++) {
+			rows[r] = r < rowCount ? randomRow(random) & columnMask : 0;
+		}
+	}
+
+	private long randomRow(SplittableRandom random) {
+		if (density == 0) {
+			return 0;
+		}
+		if (density == 1L << DENSITY_BITS) {
+			return -1L;
+		}
+		long bits = 0;
+		for (int digit = Long.numberOfTrailingZeros(density); digit < DENSITY_BITS; digit++) {
+			if ((density & (1L << digit)) != 0) {
+				bits |= random.nextLong();
+			} else {
+				bits &= random.nextLong();
+			}
+		}
+		return bits;
+	}
+
+	/** Fills a range of a batch's tiles, splitting it in half until it is small enough. */
+	private class FillTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final long first;
+		private final SplittableRandom[] randoms;
+		private final long[][] rows;
+		private final int from;
+		private final int to;
+
+		FillTask(long first, SplittableRandom[] randoms, long[][] rows, int from, int to) {
+			this.first = first;
+			this.randoms = randoms;
+			this.rows = rows;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= TILES_PER_TASK) {
+				for (int i = from; i < to; i++) {
+					fillTile(first + i, randoms[i], rows[i]);
+				}
+			} else {
+				int middle = (from + to) >>> 1;
+				invokeAll(new FillTask(first, randoms, rows, from, middle), new FillTask(first, randoms, rows, middle, to));
+			}
+		}
+	}
+}
@@ -0,0 +1,192 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * An outer-totalistic Life-like rule such as B3/S23 (Conway's Game of Life) or B36/S23 (HighLife).
+ * <p>
+ * A rule is parsed from a rulestring into two 9-bit masks, one bit for each neighbour count that
+ * gives birth and one for each that lets a cell survive. From these it precomputes a 512-entry
+ * table indexed by a whole 3x3 neighbourhood, and a bitwise formula that applies the rule to 64
+ * cells at once from their binary neighbour counts.
+ * <p>
+ * Rules with B0 are not supported, as they would bring the whole infinite plane to life.
+ * @author Dirglehurbleherb
+ */
+public final class Rule {
+	public static final Rule CONWAY = parse("B3/S23");
+
+	private final int birthMask;
+	private final int survivalMask;
+	private final boolean conway;
+	private final boolean[] table = new boolean[512];
+	/** Neighbour counts that lead to a live cell, for the bitwise formula. */
+	private final int[] birthCounts;
+	private final int[] survivalCounts;
+
+	private Rule(int birthMask, int survivalMask) {
+		this.birthMask = birthMask;
+		this.survivalMask = survivalMask;
+		this.conway = birthMask == (1 << 3) && survivalMask == ((1 << 2) | (1 << 3));
+		for (int neighbourhood = 0; neighbourhood < table.length; neighbourhood++) {
+			boolean alive = (neighbourhood & (1 << 4)) != 0;
+			int neighbours = Integer.bitCount(neighbourhood & ~(1 << 4));
+			table[neighbourhood] = alive ? survives(neighbours) : isBorn(neighbours);
+		}
+		birthCounts = countsOf(birthMask);
+		survivalCounts = countsOf(survivalMask);
+	}
+
+	private static int[] countsOf(int mask) {
+		int[] counts = new int[Integer.bitCount(mask)];
+		int i = 0;
+		for (int n = 0; n <= 8; n++) {
+			if ((mask & (1 << n)) != 0) {
+				counts[i++] = n;
+			}
+		}
+		return counts;
+	}
+
+	/**
+	 * Parses a rulestring. Accepts the B/S notation ("B36/S23", "b3s23", "B2/S")
+	 * and the older S/B notation ("23/36").
+	 * @throws IllegalArgumentException if the rulestring is malformed or contains B0
+	 */
+	public static Rule parse(String rulestring) {
+		String text = rulestring.trim().toUpperCase();
+		int birth = 0;
+		int survival = 0;
+		if (text.startsWith("B")) {
+			int s = text.indexOf('S');
+			if (s < 0) {
+				throw new IllegalArgumentException("Rule " + rulestring + " has no S section");
+			}
+			String birthDigits = text.substring(1, s);
+			if (birthDigits.endsWith("/")) {
+				birthDigits = birthDigits.substring(0, birthDigits.length() - 1);
+			}
+			birth = parseCounts(birthDigits, rulestring);
+			survival = parseCounts(text.substring(s + 1), rulestring);
+		} else {
+			int slash = text.indexOf('/');
+			if (slash < 0) {
+				throw new IllegalArgumentException("Rule " + rulestring + " is not in B/S or S/B notation");
+			}
+			survival = parseCounts(text.substring(0, slash), rulestring);
+			birth = parseCounts(text.substring(slash + 1), rulestring);
+		}
+		if ((birth & 1) != 0) {
+			throw new IllegalArgumentException("Rules with B0 are not supported");
+		}
+		return new Rule(birth, survival);
+	}
+
+	private static int parseCounts(String digits, String rulestring) {
+		int mask = 0;
+		for (int i = 0; i < digits.length(); i++) {
+			char c = digits.charAt(i);
+			if (c < '0' || c > '8') {
+				throw new IllegalArgumentException("Unexpected '" + c + "' in rule " + rulestring);
+			}
+			mask |= 1 << (c - '0');
+		}
+		return mask;
+	}
+
+	/**
+	 * Returns some well known rules, name mapped to rulestring, for use in a dropbox.
+	 */
+	public static Map<String, String> getNamedRules() {
+		Map<String, String> rules = new LinkedHashMap<String, String>();
+		rules.put("Conway", "B3/S23");
+		rules.put("HighLife", "B36/S23");
+		rules.put("Seeds", "B2/S");
+		rules.put("Day & Night", "B3678/S34678");
+		rules.put("Life without Death", "B3/S012345678");
+		rules.put("Maze", "B3/S12345");
+		return rules;
+	}
+
+	public boolean isBorn(int neighbours) {
+		return (birthMask & (1 << neighbours)) != 0;
+	}
+
+	public boolean survives(int neighbours) {
+		return (survivalMask & (1 << neighbours)) != 0;
+	}
+
+	/**
+	 * Looks up the next state of the centre cell of a 3x3 neighbourhood.
+	 * @param neighbourhood bit (y * 3 + x) set for each live cell, so bit 4 is the centre
+	 */
+	public boolean next(int neighbourhood) {
+		return table[neighbourhood];
+	}
+
+	public boolean isConway() {
+		return conway;
+	}
+
+	/**
+	 * Applies the rule to 64 cells at once.
+	 * @param row the current state of the cells
+	 * @param ones bit 0 of each cell's neighbour count
+	 * @param twos bit 1 of each cell's neighbour count
+	 * @param fours bit 2 of each cell's neighbour count
+	 * @param eights set where a cell has all 8 neighbours
+	 * @return the next state of the cells
+	 */
+	public long apply(long row, long ones, long twos, long fours, long eights) {
+		if (conway) {
+			//3 neighbours (ones and twos) gives birth or survival, 2 neighbours (twos only) keeps a live cell
+			return twos & ~fours & ~eights & (ones | row);
+		}
+		long born = 0;
+		for (int n : birthCounts) {
+			born |= countIs(n, ones, twos, fours, eights);
+		}
+		long survived = 0;
+		for (int n : survivalCounts) {
+			survived |= countIs(n, ones, twos, fours, eights);
+		}
+		return (born & ~row) | (survived & row);
+	}
+
+	private static long countIs(int n, long ones, long twos, long fours, long eights) {
+		if (n == 8) {
+			return eights;
+		}
+		return ((n & 1) != 0 ? ones : ~ones)
+				& ((n & 2) != 0 ? twos : ~twos)
+				& ((n & 4) != 0 ? fours : ~fours)
+				& ~eights;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder text = new StringBuilder("B");
+		for (int n : birthCounts) {
+			text.append(n);
+		}
+		text.append("/S");
+		for (int n : survivalCounts) {
+			text.append(n);
+		}
+		return text.toString();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null || getClass() != obj.getClass())
+			return false;
+		Rule other = (Rule) obj;
+		return birthMask == other.birthMask && survivalMask == other.survivalMask;
+	}
+
+	@Override
+	public int hashCode() {
+		return birthMask * 31 + survivalMask;
+	}
+}
@@ -0,0 +1,165 @@
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Plays a {@link Game} on a thread of its own, so that however long a generation takes the
+ * JavaFX thread is free to handle input and draw.
+ * <p>
+ * While it runs, the thread owns the game. After a generation, if the slot it hands
+ * snapshots over in is empty, it captures a {@link GenerationSnapshot} of the area in view
+ * and puts it there; the JavaFX thread takes it on its next pulse with {@link #takeSnapshot}.
+ * Neither side ever waits for the other to hand over a generation. When generations come
+ * faster than the display's frames, the ones in between are neither captured nor drawn, so
+ * a snapshot may be up to a frame behind the game. Anything else that touches the game has to
+ * stop the simulation first, which waits for the generation under way to finish.
+ * <p>
+ * When the view moves between generations the one on display is captured again for the new
+ * area, so that scrolling does not have to wait for the next generation at slow speeds.
+ * <p>
+ * A generation that throws stops play, and the exception is kept for the JavaFX thread to
+ * take with {@link #takeFailure} and show.
+ * @author Dirglehurbleherb
+ */
+public class Simulation {
+	/** How late a generation can be and still be made up for by playing the next one early. */
+	private static final long CATCH_UP_NANOS = 20_000_000L;
+	/** The longest wait between generations, a day, however low the speed is set. */
+	private static final long MAX_NANOS_PER_GENERATION = 86_400_000_000_000L;
+
+	private final Game game;
+	private final AtomicReference<GenerationSnapshot> latest = new AtomicReference<GenerationSnapshot>();
+	private volatile ViewArea area = new ViewArea(0, 0, -1, -1, ViewArea.CELLS);
+	private final AtomicBoolean areaChanged = new AtomicBoolean();
+
+	private volatile long nanosPerGeneration = 100_000_000L;
+	private volatile boolean running;
+	private volatile RuntimeException failure;
+	private Thread thread;
+
+	public Simulation(Game game) {
+		this.game = game;
+	}
+
+	/**
+	 * Sets the area captured. While the simulation is waiting for the next generation, the
+	 * current one is captured again for it.
+	 */
+	public void setArea(ViewArea area) {
+		this.area = area;
+		if (running) {
+			areaChanged.set(true);
+			LockSupport.unpark(thread);
+		}
+	}
+
+	/**
+	 * Sets how many generations are played a second, or Double.POSITIVE_INFINITY to play them
+	 * as fast as the engine can. Generations that are a little late, as waking up can be, are
+	 * made up for; a generation that takes much longer than its share is not rushed after.
+	 * Speeds below one generation a day play one a day.
+	 */
+	public void setGenerationsPerSecond(double generations) {
+		//kept well short of the long range, so that adding it to a time cannot overflow
+		nanosPerGeneration = (long) Math.max(0, Math.min(1e9 / generations, MAX_NANOS_PER_GENERATION));
+		if (running) {
+			LockSupport.unpark(thread);
+		}
+	}
+
+	/** Starts playing the game, unless it already is. */
+	public void start() {
+		if (running) {
+			return;
+		}
+		running = true;
+		failure = null;
+		thread = new Thread(this::play, "simulation");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Stops playing once the generation under way is finished and waits for that, after which the
+	 * game can be touched again. A snapshot that has not been taken is dropped, as the game may
+	 * be changed before the next one.
+	 */
+	public void stop() {
+		if (!running) {
+			return;
+		}
+		running = false;
+		LockSupport.unpark(thread);
+		boolean interrupted = false;
+		while (thread.isAlive()) {
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+		thread = null;
+		latest.set(null);
+	}
+
+	/**
+	 * @return true from start until stop, or until a generation fails, which stops play
+	 */
+	public boolean isRunning() {
+		return running;
+	}
+
+	/**
+	 * @return the exception thrown by the generation that stopped play, or null if there is none
+	 * or it has been taken already
+	 */
+	public RuntimeException takeFailure() {
+		RuntimeException taken = failure;
+		failure = null;
+		return taken;
+	}
+
+	/**
+	 * @return the newest snapshot not taken yet, or null if there is none
+	 */
+	public GenerationSnapshot takeSnapshot() {
+		return latest.getAndSet(null);
+	}
+
+	private void play() {
+		//when the last generation was due
+		long scheduled = System.nanoTime();
+		while (true) {
+			long wait;
+			//parking can end early, and the speed can change meanwhile, so the wait is worked out again each time
+			while (running && (wait = scheduled + nanosPerGeneration - System.nanoTime()) > 0) {
+				if (areaChanged.getAndSet(false)) {
+					latest.set(GenerationSnapshot.capture(game, area));
+				} else {
+					LockSupport.parkNanos(this, wait);
+				}
+			}
+			if (!running) {
+				return;
+			}
+			//nanoTime can wrap, so times are only ever compared by their difference
+			long due = scheduled + nanosPerGeneration;
+			long catchUpFrom = System.nanoTime() - CATCH_UP_NANOS;
+			scheduled = due - catchUpFrom < 0 ? catchUpFrom : due;
+			try {
+				game.update();
+				boolean moved = areaChanged.getAndSet(false);
+				if (moved || latest.get() == null) {
+					latest.set(GenerationSnapshot.capture(game, area));
+				}
+			} catch (RuntimeException e) {
+				failure = e;
+				running = false;
+				return;
+			}
+		}
+	}
+}
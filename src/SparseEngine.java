@@ -0,0 +1,258 @@
+/**
+ * Engine for sparse universes. Live cells are stored as packed grid keys (see {@link CellKey})
+ * in an open-addressing hash table, so memory and step time grow with the population
+ * rather than with the area the pattern covers.
+ * @author Dirglehurbleherb
+ */
+public class SparseEngine implements LifeEngine {
+	/** The live cells are also counted by block of 2^BLOCK_SHIFT by 2^BLOCK_SHIFT cells. */
+	static final int BLOCK_SHIFT = 6;
+
+	private LiveCellTable live = new LiveCellTable();
+	private LiveCellTable next = new LiveCellTable();
+	private LongCountMap neighbourCounts = new LongCountMap();
+	/** False once cells have been edited since the neighbour counts were accumulated. */
+	private boolean countsCurrent;
+	/** Populations of the blocks with live cells, added up as each generation is built and kept up to date by edits. */
+	private final LongCountMap blockPopulations = new LongCountMap();
+	private Rule rule = Rule.CONWAY;
+
+	/** Steps in a single pass over the live cells.
+	 * Each live cell adds one to the neighbour count of the 8 cells around it,
+	 * then the counts are swept once to apply the birth and survival rules.
+	 * Cells with no live neighbours never get a count, so they die without being visited again
+	 * unless the rule lets cells survive with 0 neighbours.
+	 * <p>
+	 * The sweep records each new cell's age next to its key. The counts for the new generation
+	 * are then accumulated straight away, which gives every live cell its final neighbour count
+	 * and leaves the counts ready for the next step. The block populations are added up in the
+	 * same sweep, as each new cell is recorded. */
+	@Override
+	public void step() {
+		if (!countsCurrent) {
+			countNeighbours();
+		}
+
+		//Apply the rules to every cell that has at least one neighbour.
+		next.clear();
+		next.ensureCapacity(live.size());
+		blockPopulations.clear();
+		for (int slot = 0; slot < neighbourCounts.capacity(); slot++) {
+			int neighbours = neighbourCounts.countAt(slot);
+			if (neighbours == 0) {
+				continue;
+			}
+			boolean born = rule.isBorn(neighbours);
+			boolean survives = rule.survives(neighbours);
+			if (!born && !survives) {
+				continue;
+			}
+			long cellKey = neighbourCounts.keyAt(slot);
+			int liveSlot = live.indexOf(cellKey);
+			if (liveSlot >= 0 ? survives : born) {
+				next.put(cellKey, liveSlot >= 0 ? live.ageAt(liveSlot) + 1 : 0, 0);
+				blockPopulations.increment(blockOf(cellKey));
+			}
+		}
+		if (rule.survives(0)) {
+			for (int slot = 0; slot < live.capacity(); slot++) {
+				if (live.isUsed(slot) && neighbourCounts.get(live.keyAt(slot)) == 0) {
+					next.put(live.keyAt(slot), live.ageAt(slot) + 1, 0);
+					blockPopulations.increment(blockOf(live.keyAt(slot)));
+				}
+			}
+		}
+
+		LiveCellTable swap = live;
+		live = next;
+		next = swap;
+
+		countNeighbours();
+		for (int slot = 0; slot < live.capacity(); slot++) {
+			if (live.isUsed(slot)) {
+				live.setNeighboursAt(slot, neighbourCounts.get(live.keyAt(slot)));
+			}
+		}
+	}
+
+	/** Accumulates each live cell's contribution to its neighbours. */
+	private void countNeighbours() {
+		neighbourCounts.clear();
+		neighbourCounts.ensureCapacity(live.size() * 3);
+		for (int slot = 0; slot < live.capacity(); slot++) {
+			if (!live.isUsed(slot)) {
+				continue;
+			}
+			long cellKey = live.keyAt(slot);
+			int gridX = CellKey.x(cellKey);
+			int gridY = CellKey.y(cellKey);
+			for (int i = 0; i < CellKey.NEIGHBOUR_DX.length; i++) {
+				neighbourCounts.increment(CellKey.pack(gridX + CellKey.NEIGHBOUR_DX[i], gridY + CellKey.NEIGHBOUR_DY[i]));
+			}
+		}
+		countsCurrent = true;
+	}
+
+	/** Key of the block holding a cell. */
+	private static long blockOf(long cellKey) {
+		return CellKey.pack(CellKey.x(cellKey) >> BLOCK_SHIFT, CellKey.y(cellKey) >> BLOCK_SHIFT);
+	}
+
+	@Override
+	public boolean isAlive(int x, int y) {
+		return live.containsKey(CellKey.pack(x, y));
+	}
+
+	/** Also corrects the stored neighbour counts of the live cells around an edited cell. */
+	@Override
+	public void setAlive(int x, int y, boolean alive) {
+		long cellKey = CellKey.pack(x, y);
+		if (alive == live.containsKey(cellKey)) {
+			return;
+		}
+		int neighbours = 0;
+		for (int i = 0; i < CellKey.NEIGHBOUR_DX.length; i++) {
+			int neighbourSlot = live.indexOf(CellKey.pack(x + CellKey.NEIGHBOUR_DX[i], y + CellKey.NEIGHBOUR_DY[i]));
+			if (neighbourSlot >= 0) {
+				neighbours++;
+				live.setNeighboursAt(neighbourSlot, live.neighboursAt(neighbourSlot) + (alive ? 1 : -1));
+			}
+		}
+		if (alive) {
+			live.put(cellKey, 0, neighbours);
+		} else {
+			live.remove(cellKey);
+		}
+		blockPopulations.adjust(blockOf(cellKey), alive ? 1 : -1);
+		countsCurrent = false;
+	}
+
+	@Override
+	public void forEachLive(CellVisitor visitor) {
+		for (int slot = 0; slot < live.capacity(); slot++) {
+			if (live.isUsed(slot)) {
+				visitor.visit(CellKey.x(live.keyAt(slot)), CellKey.y(live.keyAt(slot)));
+			}
+		}
+	}
+
+	@Override
+	public void forEachLiveState(CellStateVisitor visitor) {
+		for (int slot = 0; slot < live.capacity(); slot++) {
+			if (live.isUsed(slot)) {
+				long cellKey = live.keyAt(slot);
+				visitor.visit(CellKey.x(cellKey), CellKey.y(cellKey), live.ageAt(slot), live.neighboursAt(slot));
+			}
+		}
+	}
+
+	@Override
+	public void forEachLiveIn(int minX, int minY, int maxX, int maxY, CellVisitor visitor) {
+		forEachLiveStateIn(minX, minY, maxX, maxY, (x, y, age, neighbours) -> visitor.visit(x, y));
+	}
+
+	/**
+	 * The table has no order to search by area, so an area holding fewer cells than the table
+	 * has live ones is looked up cell by cell, and a larger one is filtered from a sweep of the table.
+	 */
+	@Override
+	public void forEachLiveStateIn(int minX, int minY, int maxX, int maxY, CellStateVisitor visitor) {
+		if (minX > maxX || minY > maxY) {
+			return;
+		}
+		long across = (long) maxX - minX + 1;
+		long down = (long) maxY - minY + 1;
+		//each side is checked first so that the area of a huge one cannot overflow
+		if (across <= live.size() && down <= live.size() && across * down <= live.size()) {
+			for (int y = minY; ; y++) {
+				for (int x = minX; ; x++) {
+					int slot = live.indexOf(CellKey.pack(x, y));
+					if (slot >= 0) {
+						visitor.visit(x, y, live.ageAt(slot), live.neighboursAt(slot));
+					}
+					if (x == maxX) {
+						break;
+					}
+				}
+				if (y == maxY) {
+					break;
+				}
+			}
+			return;
+		}
+		for (int slot = 0; slot < live.capacity(); slot++) {
+			if (live.isUsed(slot)) {
+				long cellKey = live.keyAt(slot);
+				int x = CellKey.x(cellKey);
+				int y = CellKey.y(cellKey);
+				if (x >= minX && x <= maxX && y >= minY && y <= maxY) {
+					visitor.visit(x, y, live.ageAt(slot), live.neighboursAt(slot));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Blocks of a block or more are counted from the block populations, so the cost follows the
+	 * number of blocks with live cells. Smaller blocks are counted a cell at a time.
+	 */
+	@Override
+	public void forEachBlock(int log2, int minBlockX, int minBlockY, int maxBlockX, int maxBlockY, BlockVisitor visitor) {
+		if (log2 < BLOCK_SHIFT) {
+			LifeEngine.super.forEachBlock(log2, minBlockX, minBlockY, maxBlockX, maxBlockY, visitor);
+			return;
+		}
+		int shift = log2 - BLOCK_SHIFT;
+		for (int slot = 0; slot < blockPopulations.capacity(); slot++) {
+			if (blockPopulations.countAt(slot) == 0) {
+				continue;
+			}
+			int blockX = CellKey.x(blockPopulations.keyAt(slot)) >> shift;
+			int blockY = CellKey.y(blockPopulations.keyAt(slot)) >> shift;
+			if (blockX >= minBlockX && blockX <= maxBlockX && blockY >= minBlockY && blockY <= maxBlockY) {
+				visitor.visit(blockX, blockY, blockPopulations.countAt(slot));
+			}
+		}
+	}
+
+	/**
+	 * Births are the live cells of age 0. After a step the old generation is still in the back
+	 * table, so deaths are the cells there that are no longer alive.
+	 */
+	@Override
+	public boolean forEachChange(CellChangeVisitor visitor) {
+		for (int slot = 0; slot < live.capacity(); slot++) {
+			if (live.isUsed(slot) && live.ageAt(slot) == 0) {
+				visitor.visit(CellKey.x(live.keyAt(slot)), CellKey.y(live.keyAt(slot)), true);
+			}
+		}
+		for (int slot = 0; slot < next.capacity(); slot++) {
+			if (next.isUsed(slot) && !live.containsKey(next.keyAt(slot))) {
+				visitor.visit(CellKey.x(next.keyAt(slot)), CellKey.y(next.keyAt(slot)), false);
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public long getPopulation() {
+		return live.size();
+	}
+
+	@Override
+	public void clear() {
+		live.clear();
+		blockPopulations.clear();
+		countsCurrent = false;
+	}
+
+	@Override
+	public void setRule(Rule rule) {
+		this.rule = rule;
+	}
+
+	@Override
+	public Rule getRule() {
+		return rule;
+	}
+}
@@ -0,0 +1,100 @@
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Checks {@link TiledEngine}, with the scalar kernel, on a pool and with the vector kernel,
+ * against {@link SparseEngine} while cells are edited and the rule is changed part way through
+ * a run, which is when the tiles' history of earlier generations stops describing their cells.
+ * <p>
+ * Usage: java TiledCheck [runs] [generations]<br>
+ * Each run (50 if not given) places a random soup and steps every engine for the given number of
+ * generations (200 if not given). Every few generations cells are added and removed, among them
+ * lone cells next to still lifes, which settled tiles would otherwise skip, and now and then the
+ * rule is changed. After every step the live cells of each engine are compared with SparseEngine's.
+ * @author Dirglehurbleherb
+ */
+public class TiledCheck {
+	private static final String[] RULES = {"B3/S23", "B36/S23", "B3678/S34678", "B2/S"};
+	private static final int AREA = 300;
+	private static final int EDIT_EVERY = 7;
+	private static final int RULE_EVERY = 50;
+
+	public static void main(String[] args) {
+		int runs = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+		int generations = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+		String[] names = {"scalar", "parallel", "vector"};
+		int failures = 0;
+		for (int run = 0; run < runs; run++) {
+			Random random = new Random(run);
+			LifeEngine expected = new SparseEngine();
+			LifeEngine[] engines = {new TiledEngine(), new TiledEngine(ForkJoinPool.commonPool()), new TiledEngine(null, true)};
+			RandomSoup soup = new RandomSoup(run, 0.3, AREA / 3, AREA / 3);
+			soup.placeOn(expected, 0, 0);
+			for (LifeEngine engine : engines) {
+				soup.placeOn(engine, 0, 0);
+			}
+			boolean[] failed = new boolean[engines.length];
+			for (int generation = 1; generation <= generations; generation++) {
+				if (generation % RULE_EVERY == 0) {
+					Rule rule = Rule.parse(RULES[random.nextInt(RULES.length)]);
+					expected.setRule(rule);
+					for (LifeEngine engine : engines) {
+						engine.setRule(rule);
+					}
+				}
+				if (generation % EDIT_EVERY == 0) {
+					edit(random, expected, engines);
+				}
+				expected.step();
+				for (int i = 0; i < engines.length; i++) {
+					engines[i].step();
+					if (!failed[i] && !sameCells(expected, engines[i])) {
+						System.out.println("run " + run + ": " + names[i] + " differs at generation " + generation);
+						failed[i] = true;
+						failures++;
+					}
+				}
+			}
+		}
+		System.out.println(runs * 3 + " runs checked, " + failures + " disagreed");
+	}
+
+	/**
+	 * Flips a few random cells, and adds a lone cell beside a live cell, which on its own dies
+	 * again while the cells around it carry on as they were.
+	 */
+	private static void edit(Random random, LifeEngine expected, LifeEngine[] engines) {
+		for (int i = 0; i < 5; i++) {
+			int x = random.nextInt(AREA) - AREA / 3;
+			int y = random.nextInt(AREA) - AREA / 3;
+			boolean alive = !expected.isAlive(x, y);
+			expected.setAlive(x, y, alive);
+			for (LifeEngine engine : engines) {
+				engine.setAlive(x, y, alive);
+			}
+		}
+		long[] cell = new long[1];
+		expected.forEachLive((x, y) -> cell[0] = CellKey.pack(x, y));
+		if (expected.getPopulation() > 0) {
+			int x = CellKey.x(cell[0]) + 3;
+			int y = CellKey.y(cell[0]);
+			expected.setAlive(x, y, true);
+			for (LifeEngine engine : engines) {
+				engine.setAlive(x, y, true);
+			}
+		}
+	}
+
+	private static boolean sameCells(LifeEngine expected, LifeEngine engine) {
+		if (engine.getPopulation() != expected.getPopulation()) {
+			return false;
+		}
+		boolean[] same = {true};
+		expected.forEachLive((x, y) -> {
+			if (!engine.isAlive(x, y)) {
+				same[0] = false;
+			}
+		});
+		return same[0];
+	}
+}
@@ -0,0 +1,796 @@
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Engine for dense universes. The grid is split into 64x64 tiles, each stored as 64 longs
+ * with one bit per cell, and the next generation is computed with bitwise adders so that
+ * a whole row of 64 cells is updated by a handful of machine instructions.
+ * <p>
+ * Only tiles containing live cells are stored. A missing tile is created when a live cell sits
+ * on the edge facing it, and a tile is dropped once it has been empty for three generations.
+ * <p>
+ * Each tile remembers the previous generation and whether it differs from two generations ago.
+ * A tile that has not changed in that time, and whose neighbours have not either, must repeat
+ * the generation before this one, so still lifes and period-2 oscillators are not recomputed.
+ * A tile wakes up again as soon as one of its neighbours changes. An edit or a rule change
+ * breaks that history, as the cells are then no longer what the step before made of their
+ * surroundings, so an edited tile and its neighbours, or every tile after a rule change, are
+ * computed in full for the next {@link #RECOMPUTE_STEPS} steps.
+ * <p>
+ * Bit i of row r of the tile at (tileX, tileY) is the cell (tileX*64 + i, tileY*64 + r).
+ * <p>
+ * When given a ForkJoinPool the tiles of each generation are computed in parallel. Every tile
+ * only reads the previous generation and writes its own result, and results are merged in a
+ * fixed order, so the outcome does not depend on how the work was split between threads.
+ * <p>
+ * Tiles can also be computed with {@link VectorKernel}, which the JIT compiler turns into SIMD
+ * instructions, when the running VM supports it.
+ * <p>
+ * Cell ages are kept bit-sliced next to the rows: bit i of row r of plane k is bit k of the age
+ * of cell i in row r. Ageing a tile is then a ripple-carry increment of the surviving cells,
+ * a few bitwise operations per row and plane, and ages saturate at {@link #MAX_AGE}.
+ * @author Dirglehurbleherb
+ */
+public class TiledEngine implements LifeEngine {
+	static final int SIZE = 64;
+	static final int SHIFT = 6;
+	static final long[] EMPTY = new long[SIZE];
+	private static final long LEFT_BIT = 1L;
+	private static final long RIGHT_BIT = 1L << 63;
+	/** Number of tiles below which a parallel task stops splitting and computes its tiles. */
+	private static final int TILES_PER_TASK = 4;
+	/** Each level of regions is 2^REGION_SHIFT times as wide as the level below, the first level being tiles. */
+	static final int REGION_SHIFT = 3;
+	/**
+	 * Number of levels of region populations kept above the tiles. The largest region is then 2^9
+	 * tiles across, so its population still fits in an int.
+	 */
+	static final int REGION_LEVELS = 3;
+	/** Steps a tile is computed in full after an edit or a rule change, until its history can be trusted again. */
+	static final int RECOMPUTE_STEPS = 2;
+	/** Number of bits kept for each cell's age. */
+	static final int AGE_BITS = 6;
+	/** Age at which cells stop getting older. */
+	static final int MAX_AGE = (1 << AGE_BITS) - 1;
+
+	/** A 64x64 block of cells for the current and the previous generation. */
+	static final class Tile {
+		long[] rows = new long[SIZE];
+		long[] previous = new long[SIZE];
+		/** AGE_BITS planes of SIZE rows each, plane k holding bit k of every cell's age. */
+		final long[] ages = new long[AGE_BITS * SIZE];
+		long population;
+		long previousPopulation;
+		/** False when rows are the same as two generations ago. */
+		boolean changing = true;
+		/** Steps left before the tile and its neighbours can be skipped again after an edit or a rule change. */
+		int recomputeSteps = RECOMPUTE_STEPS;
+	}
+
+	private LongCellMap<Tile> tiles = new LongCellMap<Tile>();
+	private LongCellMap<Boolean> candidates = new LongCellMap<Boolean>();
+	/**
+	 * Populations of the regions with live cells at each level, level k holding regions of
+	 * 2^(REGION_SHIFT*(k+1)) tiles across. They are kept up to date as tile populations change.
+	 */
+	private final LongCountMap[] regionPopulations = new LongCountMap[REGION_LEVELS];
+	private long population;
+	private final ForkJoinPool pool;
+	private final boolean vectorKernel;
+	private Rule rule = Rule.CONWAY;
+	private long[] candidateKeys = new long[0];
+	private long[][] results = new long[0][];
+	private long[] resultPopulations = new long[0];
+	private boolean[] resultChanging = new boolean[0];
+	private boolean[] resultSkipped = new boolean[0];
+	private long skippedTiles;
+
+	//scratch rows for one tile plus a row of its neighbours above and below
+	private final long[] centre = new long[SIZE + 2];
+	private final long[] west = new long[SIZE + 2];
+	private final long[] east = new long[SIZE + 2];
+	private final long[] next = new long[SIZE];
+
+	/** Creates an engine that steps on the calling thread. */
+	public TiledEngine() {
+		this(null);
+	}
+
+	/**
+	 * Creates an engine that computes tiles on the pool, or on the calling thread if pool is null.
+	 */
+	public TiledEngine(ForkJoinPool pool) {
+		this(pool, false);
+	}
+
+	/**
+	 * Creates an engine that computes tiles on the pool, or on the calling thread if pool is null.
+	 * @param vectorKernel true to use the VectorKernel where the VM supports it, otherwise the scalar kernel is used
+	 */
+	public TiledEngine(ForkJoinPool pool, boolean vectorKernel) {
+		this.pool = pool;
+		this.vectorKernel = vectorKernel && VectorKernel.isSupported();
+		for (int level = 0; level < REGION_LEVELS; level++) {
+			regionPopulations[level] = new LongCountMap();
+		}
+	}
+
+	/**
+	 * @return true if tiles are being computed with the VectorKernel
+	 */
+	public boolean isVectorKernel() {
+		return vectorKernel;
+	}
+
+	@Override
+	public void step() {
+		//every existing tile, plus any missing tile that a live edge cell could cause a birth in
+		candidates.clear();
+		for (int slot = 0; slot < tiles.capacity(); slot++) {
+			if (tiles.isUsed(slot)) {
+				addCandidates(tiles.keyAt(slot), tiles.valueAt(slot).rows);
+			}
+		}
+
+		int count = 0;
+		if (candidateKeys.length < candidates.size()) {
+			candidateKeys = new long[candidates.capacity()];
+			results = new long[candidates.capacity()][];
+			resultPopulations = new long[candidates.capacity()];
+			resultChanging = new boolean[candidates.capacity()];
+			resultSkipped = new boolean[candidates.capacity()];
+		}
+		for (int slot = 0; slot < candidates.capacity(); slot++) {
+			if (candidates.isUsed(slot)) {
+				candidateKeys[count++] = candidates.keyAt(slot);
+			}
+		}
+
+		if (pool != null && count > TILES_PER_TASK) {
+			pool.invoke(new TileTask(0, count));
+		} else {
+			for (int i = 0; i < count; i++) {
+				computeTile(i, centre, west, east, next);
+			}
+		}
+
+		//merge in candidate order so the result is the same however the work was split
+		population = 0;
+		skippedTiles = 0;
+		for (int i = 0; i < count; i++) {
+			long key = candidateKeys[i];
+			Tile tile = tiles.get(key);
+			if (resultSkipped[i]) {
+				skippedTiles++;
+			}
+			if (tile == null) {
+				if (results[i] != null) {
+					tile = new Tile();
+					tile.rows = results[i];
+					tile.population = resultPopulations[i];
+					tiles.put(key, tile);
+					population += tile.population;
+					countInRegions(key, tile.population);
+					results[i] = null;
+				}
+				continue;
+			}
+			//the new generation was written over the old previous rows
+			long[] swap = tile.rows;
+			tile.rows = tile.previous;
+			tile.previous = swap;
+			tile.previousPopulation = tile.population;
+			tile.population = resultPopulations[i];
+			tile.changing = resultChanging[i];
+			if (tile.recomputeSteps > 0) {
+				tile.recomputeSteps--;
+			}
+			if (!tile.changing && tile.population == 0 && tile.previousPopulation == 0) {
+				tiles.remove(key);
+			}
+			population += tile.population;
+			countInRegions(key, tile.population - tile.previousPopulation);
+		}
+	}
+
+	/** Adds the change in the population of a tile to the region holding it at every level. */
+	private void countInRegions(long key, long change) {
+		if (change == 0) {
+			return;
+		}
+		int tileX = CellKey.x(key);
+		int tileY = CellKey.y(key);
+		for (int level = 0; level < REGION_LEVELS; level++) {
+			int shift = REGION_SHIFT * (level + 1);
+			regionPopulations[level].adjust(CellKey.pack(tileX >> shift, tileY >> shift), (int) change);
+		}
+	}
+
+	/**
+	 * Computes the next generation of the i'th candidate tile.
+	 * An existing tile's result is written over its previous rows, which no other tile reads;
+	 * a missing tile's result is left in results[i], or null if it stays empty.
+	 * The next array is scratch space of SIZE rows.
+	 */
+	private void computeTile(int i, long[] centre, long[] west, long[] east, long[] next) {
+		long key = candidateKeys[i];
+		Tile tile = tiles.get(key);
+		if (isSettled(key, tile)) {
+			//same surroundings as two generations ago, so the result is the previous generation
+			results[i] = null;
+			resultPopulations[i] = tile == null ? 0 : tile.previousPopulation;
+			resultChanging[i] = false;
+			resultSkipped[i] = true;
+			if (tile != null) {
+				ageTile(tile.ages, tile.previous, tile.rows, centre);
+			}
+			return;
+		}
+		resultSkipped[i] = false;
+		long tilePopulation = nextTile(key, next, centre, west, east);
+		resultPopulations[i] = tilePopulation;
+		if (tile == null) {
+			results[i] = tilePopulation > 0 ? next.clone() : null;
+			resultChanging[i] = tilePopulation > 0;
+		} else {
+			resultChanging[i] = !Arrays.equals(next, tile.previous);
+			System.arraycopy(next, 0, tile.previous, 0, SIZE);
+			ageTile(tile.ages, tile.previous, tile.rows, centre);
+		}
+	}
+
+	/**
+	 * Adds one to the age of every cell alive in both generations and resets the rest to 0.
+	 * A missing tile has no survivors, so a new tile starts with all ages at 0.
+	 * Works a plane at a time so each inner loop runs over contiguous rows; carry is scratch
+	 * space of at least SIZE rows.
+	 */
+	private static void ageTile(long[] ages, long[] next, long[] current, long[] carry) {
+		for (int r = 0; r < SIZE; r++) {
+			carry[r] = next[r] & current[r];
+		}
+		for (int k = 0; k < AGE_BITS; k++) {
+			int plane = k * SIZE;
+			for (int r = 0; r < SIZE; r++) {
+				long bits = ages[plane + r];
+				ages[plane + r] = (bits ^ carry[r]) & next[r] & current[r];
+				carry[r] &= bits;
+			}
+		}
+		//cells that were already at MAX_AGE overflowed to 0, put them back
+		for (int k = 0; k < AGE_BITS; k++) {
+			int plane = k * SIZE;
+			for (int r = 0; r < SIZE; r++) {
+				ages[plane + r] |= carry[r];
+			}
+		}
+	}
+
+	/**
+	 * True if neither the tile nor any of its neighbours has changed over the last two generations,
+	 * or been edited within the last RECOMPUTE_STEPS steps. Missing tiles have been empty for at
+	 * least three generations, so they count as unchanged.
+	 */
+	private boolean isSettled(long key, Tile tile) {
+		if (tile != null && (tile.changing || tile.recomputeSteps > 0)) {
+			return false;
+		}
+		int tileX = CellKey.x(key);
+		int tileY = CellKey.y(key);
+		for (int i = 0; i < CellKey.NEIGHBOUR_DX.length; i++) {
+			Tile neighbour = tiles.get(CellKey.pack(tileX + CellKey.NEIGHBOUR_DX[i], tileY + CellKey.NEIGHBOUR_DY[i]));
+			if (neighbour != null && (neighbour.changing || neighbour.recomputeSteps > 0)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return the number of tiles that were skipped in the last step because they had settled
+	 */
+	public long getSkippedTiles() {
+		return skippedTiles;
+	}
+
+	/**
+	 * Computes a range of candidate tiles, splitting in half until the range is small enough.
+	 * Idle workers steal the halves, which keeps threads busy when some areas are far denser than others.
+	 */
+	private class TileTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final int from;
+		private final int to;
+
+		TileTask(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= TILES_PER_TASK) {
+				long[] centre = new long[SIZE + 2];
+				long[] west = new long[SIZE + 2];
+				long[] east = new long[SIZE + 2];
+				long[] next = new long[SIZE];
+				for (int i = from; i < to; i++) {
+					computeTile(i, centre, west, east, next);
+				}
+			} else {
+				int middle = (from + to) >>> 1;
+				invokeAll(new TileTask(from, middle), new TileTask(middle, to));
+			}
+		}
+	}
+
+	/**
+	 * Marks the tile and each neighbouring tile that shares an occupied edge or corner with it.
+	 */
+	private void addCandidates(long key, long[] rows) {
+		candidates.put(key, Boolean.TRUE);
+		long leftColumn = 0;
+		long rightColumn = 0;
+		for (long row : rows) {
+			leftColumn |= row & LEFT_BIT;
+			rightColumn |= row & RIGHT_BIT;
+		}
+		long top = rows[0];
+		long bottom = rows[SIZE - 1];
+		int tileX = CellKey.x(key);
+		int tileY = CellKey.y(key);
+		if (top != 0) {
+			candidates.put(CellKey.pack(tileX, tileY - 1), Boolean.TRUE);
+		}
+		if (bottom != 0) {
+			candidates.put(CellKey.pack(tileX, tileY + 1), Boolean.TRUE);
+		}
+		if (leftColumn != 0) {
+			candidates.put(CellKey.pack(tileX - 1, tileY), Boolean.TRUE);
+		}
+		if (rightColumn != 0) {
+			candidates.put(CellKey.pack(tileX + 1, tileY), Boolean.TRUE);
+		}
+		if ((top & LEFT_BIT) != 0) {
+			candidates.put(CellKey.pack(tileX - 1, tileY - 1), Boolean.TRUE);
+		}
+		if ((top & RIGHT_BIT) != 0) {
+			candidates.put(CellKey.pack(tileX + 1, tileY - 1), Boolean.TRUE);
+		}
+		if ((bottom & LEFT_BIT) != 0) {
+			candidates.put(CellKey.pack(tileX - 1, tileY + 1), Boolean.TRUE);
+		}
+		if ((bottom & RIGHT_BIT) != 0) {
+			candidates.put(CellKey.pack(tileX + 1, tileY + 1), Boolean.TRUE);
+		}
+	}
+
+	/**
+	 * Computes the next generation of one tile into result.
+	 * The scratch arrays must hold SIZE + 2 rows and are overwritten.
+	 * @return the number of live cells in the result
+	 */
+	private long nextTile(long key, long[] result, long[] centre, long[] west, long[] east) {
+		int tileX = CellKey.x(key);
+		int tileY = CellKey.y(key);
+		gatherColumn(tileX, tileY, centre);
+		gatherColumn(tileX - 1, tileY, west);
+		gatherColumn(tileX + 1, tileY, east);
+		if (vectorKernel) {
+			return VectorKernel.nextRows(centre, west, east, result, rule);
+		}
+
+		long tilePopulation = 0;
+		for (int r = 0; r < SIZE; r++) {
+			long next = nextRow(
+					centre[r], west[r], east[r],
+					centre[r + 1], west[r + 1], east[r + 1],
+					centre[r + 2], west[r + 2], east[r + 2], rule);
+			result[r] = next;
+			tilePopulation += Long.bitCount(next);
+		}
+		return tilePopulation;
+	}
+
+	/**
+	 * Copies the rows of a tile, with the bottom row of the tile above it first and the
+	 * top row of the tile below it last, into a SIZE + 2 row array.
+	 */
+	private void gatherColumn(int tileX, int tileY, long[] out) {
+		long[] above = rowsAt(tileX, tileY - 1);
+		long[] middle = rowsAt(tileX, tileY);
+		long[] below = rowsAt(tileX, tileY + 1);
+		out[0] = above[SIZE - 1];
+		System.arraycopy(middle, 0, out, 1, SIZE);
+		out[SIZE + 1] = below[0];
+	}
+
+	private long[] rowsAt(int tileX, int tileY) {
+		Tile tile = tiles.get(CellKey.pack(tileX, tileY));
+		return tile == null ? EMPTY : tile.rows;
+	}
+
+	/**
+	 * Applies the rule to 64 cells at once.
+	 * Each argument is a row of 64 cells; the west and east rows supply the cells just off
+	 * either end of the row.
+	 */
+	static long nextRow(long above, long aboveWest, long aboveEast,
+			long row, long rowWest, long rowEast,
+			long below, long belowWest, long belowEast, Rule rule) {
+		//neighbour bit vectors: bit i of "left" is the cell at i-1 and of "right" the cell at i+1
+		long aboveLeft = (above << 1) | (aboveWest >>> 63);
+		long aboveRight = (above >>> 1) | (aboveEast << 63);
+		long left = (row << 1) | (rowWest >>> 63);
+		long right = (row >>> 1) | (rowEast << 63);
+		long belowLeft = (below << 1) | (belowWest >>> 63);
+		long belowRight = (below >>> 1) | (belowEast << 63);
+
+		//add each row of neighbours: three bits per cell for above and below, two for the middle
+		return applyRule(row, sum(aboveLeft, above, aboveRight), carry(aboveLeft, above, aboveRight),
+				left ^ right, left & right,
+				sum(belowLeft, below, belowRight), carry(belowLeft, below, belowRight), rule);
+	}
+
+	/**
+	 * Applies the rule to 64 cells whose neighbours have been added up a row at a time, into a
+	 * sum and a carry bit per cell for the row above, the cells either side and the row below.
+	 * The three partial sums (weight 1) and three carries (weight 2) are added with full adders
+	 * into a binary count held across four bit vectors (ones, twos, fours, eights).
+	 */
+	static long applyRule(long row, long aboveSum, long aboveCarry, long middleSum, long middleCarry,
+			long belowSum, long belowCarry, Rule rule) {
+		long ones = sum(aboveSum, belowSum, middleSum);
+		long onesCarry = carry(aboveSum, belowSum, middleSum);
+		long carrySum = sum(aboveCarry, belowCarry, middleCarry);
+		long carryCarry = carry(aboveCarry, belowCarry, middleCarry);
+		long twos = carrySum ^ onesCarry;
+		long twosCarry = carrySum & onesCarry;
+		long fours = carryCarry ^ twosCarry;
+		long eights = carryCarry & twosCarry;
+		return rule.apply(row, ones, twos, fours, eights);
+	}
+
+	/** The sum bit of adding three bit vectors cell by cell, the low half of a full adder. */
+	static long sum(long a, long b, long c) {
+		return a ^ b ^ c;
+	}
+
+	/** The carry bit of adding three bit vectors cell by cell, the high half of a full adder. */
+	static long carry(long a, long b, long c) {
+		return (a & b) | (c & (a ^ b));
+	}
+
+	@Override
+	public boolean isAlive(int x, int y) {
+		Tile tile = tiles.get(CellKey.pack(x >> SHIFT, y >> SHIFT));
+		return tile != null && (tile.rows[y & (SIZE - 1)] & (1L << x)) != 0;
+	}
+
+	@Override
+	public void setAlive(int x, int y, boolean alive) {
+		long key = CellKey.pack(x >> SHIFT, y >> SHIFT);
+		Tile tile = tiles.get(key);
+		int r = y & (SIZE - 1);
+		long bit = 1L << x;
+		if (alive) {
+			if (tile == null) {
+				tile = new Tile();
+				tiles.put(key, tile);
+			}
+			if ((tile.rows[r] & bit) == 0) {
+				tile.rows[r] |= bit;
+				for (int k = r; k < tile.ages.length; k += SIZE) {
+					tile.ages[k] &= ~bit;
+				}
+				tile.population++;
+				tile.recomputeSteps = RECOMPUTE_STEPS;
+				population++;
+				countInRegions(key, 1);
+			}
+		} else if (tile != null && (tile.rows[r] & bit) != 0) {
+			tile.rows[r] &= ~bit;
+			tile.population--;
+			tile.recomputeSteps = RECOMPUTE_STEPS;
+			population--;
+			countInRegions(key, -1);
+		}
+	}
+
+	/** A row of 64 cells lands on at most two tiles, so it is merged in a word at a time. */
+	@Override
+	public void setAliveBits(int x, int y, long bits) {
+		int offset = x & (SIZE - 1);
+		setTileRowBits(x >> SHIFT, y, bits << offset);
+		if (offset != 0) {
+			setTileRowBits((x >> SHIFT) + 1, y, bits >>> (SIZE - offset));
+		}
+	}
+
+	private void setTileRowBits(int tileX, int y, long bits) {
+		if (bits == 0) {
+			return;
+		}
+		long key = CellKey.pack(tileX, y >> SHIFT);
+		Tile tile = tiles.get(key);
+		if (tile == null) {
+			tile = new Tile();
+			tiles.put(key, tile);
+		}
+		int r = y & (SIZE - 1);
+		long born = bits & ~tile.rows[r];
+		if (born != 0) {
+			tile.rows[r] |= born;
+			for (int k = r; k < tile.ages.length; k += SIZE) {
+				tile.ages[k] &= ~born;
+			}
+			int count = Long.bitCount(born);
+			tile.population += count;
+			tile.recomputeSteps = RECOMPUTE_STEPS;
+			population += count;
+			countInRegions(key, count);
+		}
+	}
+
+	@Override
+	public void forEachLive(CellVisitor visitor) {
+		for (int slot = 0; slot < tiles.capacity(); slot++) {
+			if (tiles.isUsed(slot)) {
+				visitLive(tiles.keyAt(slot), tiles.valueAt(slot), Integer.MIN_VALUE, Integer.MIN_VALUE,
+						Integer.MAX_VALUE, Integer.MAX_VALUE, visitor);
+			}
+		}
+	}
+
+	/**
+	 * Reads ages from the age planes and counts neighbours from the same shifted rows
+	 * the kernel adds up.
+	 */
+	@Override
+	public void forEachLiveState(CellStateVisitor visitor) {
+		for (int slot = 0; slot < tiles.capacity(); slot++) {
+			if (tiles.isUsed(slot)) {
+				visitStates(tiles.keyAt(slot), tiles.valueAt(slot), Integer.MIN_VALUE, Integer.MIN_VALUE,
+						Integer.MAX_VALUE, Integer.MAX_VALUE, visitor);
+			}
+		}
+	}
+
+	@Override
+	public void forEachLiveIn(int minX, int minY, int maxX, int maxY, CellVisitor visitor) {
+		forEachTileIn(minX, minY, maxX, maxY, (key, tile) -> visitLive(key, tile, minX, minY, maxX, maxY, visitor));
+	}
+
+	@Override
+	public void forEachLiveStateIn(int minX, int minY, int maxX, int maxY, CellStateVisitor visitor) {
+		forEachTileIn(minX, minY, maxX, maxY, (key, tile) -> visitStates(key, tile, minX, minY, maxX, maxY, visitor));
+	}
+
+	/**
+	 * Blocks of a region or more are counted from the populations of the coarsest level of regions
+	 * no wider than them, blocks of a tile or more from the tile populations, and smaller ones from
+	 * the bit counts of their rows.
+	 */
+	@Override
+	public void forEachBlock(int log2, int minBlockX, int minBlockY, int maxBlockX, int maxBlockY, BlockVisitor visitor) {
+		if (minBlockX > maxBlockX || minBlockY > maxBlockY) {
+			return;
+		}
+		if (log2 >= SHIFT + REGION_SHIFT) {
+			int level = Math.min((log2 - SHIFT) / REGION_SHIFT, REGION_LEVELS) - 1;
+			LongCountMap regions = regionPopulations[level];
+			int shift = log2 - SHIFT - REGION_SHIFT * (level + 1);
+			for (int slot = 0; slot < regions.capacity(); slot++) {
+				if (regions.countAt(slot) == 0) {
+					continue;
+				}
+				int blockX = CellKey.x(regions.keyAt(slot)) >> shift;
+				int blockY = CellKey.y(regions.keyAt(slot)) >> shift;
+				if (blockX >= minBlockX && blockX <= maxBlockX && blockY >= minBlockY && blockY <= maxBlockY) {
+					visitor.visit(blockX, blockY, regions.countAt(slot));
+				}
+			}
+			return;
+		}
+		int minX = minBlockX << log2;
+		int minY = minBlockY << log2;
+		int maxX = (int) (((maxBlockX + 1L) << log2) - 1);
+		int maxY = (int) (((maxBlockY + 1L) << log2) - 1);
+		if (log2 >= SHIFT) {
+			forEachTileIn(minX, minY, maxX, maxY, (key, tile) -> {
+				if (tile.population > 0) {
+					visitor.visit(CellKey.x(key) >> (log2 - SHIFT), CellKey.y(key) >> (log2 - SHIFT), tile.population);
+				}
+			});
+			return;
+		}
+		//blocks are no wider than a tile, so the area is whole tiles or lies inside one
+		forEachTileIn(minX, minY, maxX, maxY, (key, tile) -> {
+			int originX = CellKey.x(key) << SHIFT;
+			int originY = CellKey.y(key) << SHIFT;
+			long mask = columnMask(originX, minX, maxX);
+			int firstRow = (int) Math.max(minY - (long) originY, 0);
+			int lastRow = (int) Math.min(maxY - (long) originY, SIZE - 1);
+			for (int r = firstRow; r <= lastRow; r++) {
+				long bits = tile.rows[r] & mask;
+				if (bits != 0) {
+					visitor.visitRow(originX, originY + r, log2, bits);
+				}
+			}
+		});
+	}
+
+	/** Something done with one tile. */
+	private interface TileAction {
+		void run(long key, Tile tile);
+	}
+
+	/**
+	 * Runs the action on every tile that overlaps the area, looking the tiles up by key if there are
+	 * fewer of them than tiles in use, and otherwise sweeping the tile map and skipping the rest.
+	 */
+	private void forEachTileIn(int minX, int minY, int maxX, int maxY, TileAction action) {
+		if (minX > maxX || minY > maxY) {
+			return;
+		}
+		if (isFewerTiles(minX, minY, maxX, maxY)) {
+			for (int tileY = minY >> SHIFT; tileY <= maxY >> SHIFT; tileY++) {
+				for (int tileX = minX >> SHIFT; tileX <= maxX >> SHIFT; tileX++) {
+					long key = CellKey.pack(tileX, tileY);
+					Tile tile = tiles.get(key);
+					if (tile != null) {
+						action.run(key, tile);
+					}
+				}
+			}
+			return;
+		}
+		for (int slot = 0; slot < tiles.capacity(); slot++) {
+			if (!tiles.isUsed(slot)) {
+				continue;
+			}
+			long key = tiles.keyAt(slot);
+			int tileX = CellKey.x(key);
+			int tileY = CellKey.y(key);
+			if (tileX >= minX >> SHIFT && tileX <= maxX >> SHIFT && tileY >= minY >> SHIFT && tileY <= maxY >> SHIFT) {
+				action.run(key, tiles.valueAt(slot));
+			}
+		}
+	}
+
+	/** True if the area covers fewer tiles than are in use, so looking them up beats sweeping the map. */
+	private boolean isFewerTiles(int minX, int minY, int maxX, int maxY) {
+		long across = (maxX >> SHIFT) - (long) (minX >> SHIFT) + 1;
+		long down = (maxY >> SHIFT) - (long) (minY >> SHIFT) + 1;
+		return across * down <= tiles.size();
+	}
+
+	/** Mask of the columns of a tile starting at originX that lie from minX to maxX, or 0 if none do. */
+	private static long columnMask(int originX, int minX, int maxX) {
+		long first = Math.max(minX - (long) originX, 0);
+		long last = Math.min(maxX - (long) originX, SIZE - 1);
+		if (first > last) {
+			return 0;
+		}
+		return (-1L << first) & (-1L >>> (SIZE - 1 - last));
+	}
+
+	/** Calls the visitor for the live cells of one tile that lie in the area. */
+	private static void visitLive(long key, Tile tile, int minX, int minY, int maxX, int maxY, CellVisitor visitor) {
+		int originX = CellKey.x(key) << SHIFT;
+		int originY = CellKey.y(key) << SHIFT;
+		long mask = columnMask(originX, minX, maxX);
+		int firstRow = (int) Math.max(minY - (long) originY, 0);
+		int lastRow = (int) Math.min(maxY - (long) originY, SIZE - 1);
+		if (mask == 0 || firstRow > lastRow) {
+			return;
+		}
+		long[] rows = tile.rows;
+		for (int r = firstRow; r <= lastRow; r++) {
+			long bits = rows[r] & mask;
+			while (bits != 0) {
+				visitor.visit(originX + Long.numberOfTrailingZeros(bits), originY + r);
+				bits &= bits - 1;
+			}
+		}
+	}
+
+	/** Calls the visitor with the state of the live cells of one tile that lie in the area. */
+	private void visitStates(long key, Tile tile, int minX, int minY, int maxX, int maxY, CellStateVisitor visitor) {
+		int tileX = CellKey.x(key);
+		int tileY = CellKey.y(key);
+		int originX = tileX << SHIFT;
+		int originY = tileY << SHIFT;
+		long mask = columnMask(originX, minX, maxX);
+		int firstRow = (int) Math.max(minY - (long) originY, 0);
+		int lastRow = (int) Math.min(maxY - (long) originY, SIZE - 1);
+		if (mask == 0 || firstRow > lastRow) {
+			return;
+		}
+		gatherColumn(tileX, tileY, centre);
+		gatherColumn(tileX - 1, tileY, west);
+		gatherColumn(tileX + 1, tileY, east);
+		for (int r = firstRow; r <= lastRow; r++) {
+			long bits = tile.rows[r] & mask;
+			if (bits == 0) {
+				continue;
+			}
+			long above = centre[r];
+			long below = centre[r + 2];
+			long aboveLeft = (above << 1) | (west[r] >>> 63);
+			long aboveRight = (above >>> 1) | (east[r] << 63);
+			long left = (tile.rows[r] << 1) | (west[r + 1] >>> 63);
+			long right = (tile.rows[r] >>> 1) | (east[r + 1] << 63);
+			long belowLeft = (below << 1) | (west[r + 2] >>> 63);
+			long belowRight = (below >>> 1) | (east[r + 2] << 63);
+			while (bits != 0) {
+				int i = Long.numberOfTrailingZeros(bits);
+				int neighbours = (int) ((aboveLeft >>> i & 1) + (above >>> i & 1) + (aboveRight >>> i & 1)
+						+ (left >>> i & 1) + (right >>> i & 1)
+						+ (belowLeft >>> i & 1) + (below >>> i & 1) + (belowRight >>> i & 1));
+				int age = 0;
+				for (int k = 0; k < AGE_BITS; k++) {
+					age |= (int) (tile.ages[k * SIZE + r] >>> i & 1) << k;
+				}
+				visitor.visit(originX + i, originY + r, age, neighbours);
+				bits &= bits - 1;
+			}
+		}
+	}
+
+	/**
+	 * After a step each tile's previous rows hold the old generation, so the changes are the
+	 * bits that differ. A tile is only dropped once it has been empty for both generations.
+	 */
+	@Override
+	public boolean forEachChange(CellChangeVisitor visitor) {
+		for (int slot = 0; slot < tiles.capacity(); slot++) {
+			if (!tiles.isUsed(slot)) {
+				continue;
+			}
+			Tile tile = tiles.valueAt(slot);
+			int originX = CellKey.x(tiles.keyAt(slot)) << SHIFT;
+			int originY = CellKey.y(tiles.keyAt(slot)) << SHIFT;
+			for (int r = 0; r < SIZE; r++) {
+				long changed = tile.rows[r] ^ tile.previous[r];
+				while (changed != 0) {
+					int i = Long.numberOfTrailingZeros(changed);
+					visitor.visit(originX + i, originY + r, (tile.rows[r] & (1L << i)) != 0);
+					changed &= changed - 1;
+				}
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public long getPopulation() {
+		return population;
+	}
+
+	@Override
+	public void clear() {
+		tiles.clear();
+		population = 0;
+		for (LongCountMap regions : regionPopulations) {
+			regions.clear();
+		}
+	}
+
+	@Override
+	public void setRule(Rule rule) {
+		this.rule = rule;
+		//history from the old rule says nothing about what the new one will do
+		for (int slot = 0; slot < tiles.capacity(); slot++) {
+			if (tiles.isUsed(slot)) {
+				tiles.valueAt(slot).recomputeSteps = RECOMPUTE_STEPS;
+			}
+		}
+	}
+
+	@Override
+	public Rule getRule() {
+		return rule;
+	}
+}
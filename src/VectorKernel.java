@@ -0,0 +1,89 @@
+import java.lang.management.ManagementFactory;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+
+/**
+ * Tile kernel laid out for the JIT compiler to turn into SIMD instructions on CPUs with
+ * AVX2 or AVX-512.
+ * <p>
+ * The scalar kernel in {@link TiledEngine} takes one output row at a time and works out the
+ * neighbours to either side of the rows above, at and below it, so each row's shifted copies
+ * are made three times. This kernel goes over the tile twice instead. The first pass makes
+ * each row's left and right neighbours once and adds them into a sum and carry per cell,
+ * written over the west and east columns, which are not needed after that. The second pass
+ * adds the row above, the row below and the cell itself to those sums, using the same full
+ * adders as the scalar kernel (see {@link TiledEngine#applyRule}). Both passes are straight loops
+ * over arrays with no branches between rows, the shape HotSpot's SuperWord optimisation packs
+ * into vector registers, four or eight rows per instruction.
+ * <p>
+ * Use {@link #isSupported()} to check that the running VM will vectorise it; the scalar kernel
+ * is the fallback. Java 8 has no Vector API, so the vector width is whatever the JIT picks.
+ * @author Dirglehurbleherb
+ */
+public final class VectorKernel {
+	/** HotSpot's UseAVX level for AVX2; 3 is AVX-512. */
+	private static final int AVX2 = 2;
+	private static final boolean SUPPORTED = checkSupport();
+
+	private VectorKernel() {
+	}
+
+	/**
+	 * @return true if the VM is HotSpot on an x86 CPU with AVX2 or AVX-512 in use, and has
+	 * SuperWord vectorisation switched on
+	 */
+	public static boolean isSupported() {
+		return SUPPORTED;
+	}
+
+	private static boolean checkSupport() {
+		try {
+			return Boolean.parseBoolean(vmOption("UseSuperWord")) && Integer.parseInt(vmOption("UseAVX")) >= AVX2;
+		} catch (JMException | RuntimeException e) {
+			//not a HotSpot VM, or not an x86 one, which is the only kind with UseAVX
+			return false;
+		}
+	}
+
+	private static String vmOption(String name) throws JMException {
+		CompositeData option = (CompositeData) ManagementFactory.getPlatformMBeanServer().invoke(
+				new ObjectName("com.sun.management:type=HotSpotDiagnostic"), "getVMOption",
+				new Object[] {name}, new String[] {String.class.getName()});
+		return String.valueOf(option.get("value"));
+	}
+
+	/**
+	 * Computes the next generation of a whole tile.
+	 * @param centre the tile's rows with the row above it first and the row below it last (SIZE + 2)
+	 * @param west the same rows of the tile to the west (SIZE + 2), overwritten
+	 * @param east the same rows of the tile to the east (SIZE + 2), overwritten
+	 * @param out receives the SIZE new rows
+	 * @return the number of live cells in out
+	 */
+	public static long nextRows(long[] centre, long[] west, long[] east, long[] out, Rule rule) {
+		//each row's neighbours either side, added into a sum in west and a carry in east
+		for (int r = 0; r < TiledEngine.SIZE + 2; r++) {
+			long left = (centre[r] << 1) | (west[r] >>> 63);
+			long right = (centre[r] >>> 1) | (east[r] << 63);
+			west[r] = left ^ right;
+			east[r] = left & right;
+		}
+		//adding the cell itself to those gives the sum and carry of the whole row, for the rows above and below
+		for (int r = 0; r < TiledEngine.SIZE; r++) {
+			long above = centre[r];
+			long below = centre[r + 2];
+			out[r] = TiledEngine.applyRule(centre[r + 1],
+					west[r] ^ above, east[r] | (west[r] & above),
+					west[r + 1], east[r + 1],
+					west[r + 2] ^ below, east[r + 2] | (west[r + 2] & below), rule);
+		}
+
+		long population = 0;
+		for (int r = 0; r < TiledEngine.SIZE; r++) {
+			population += Long.bitCount(out[r]);
+		}
+		return population;
+	}
+}
@@ -0,0 +1,51 @@
+/**
+ * The part of the grid in view, as a {@link GenerationSnapshot} captures it: the live cells
+ * from (minX, minY) to (maxX, maxY) inclusive, either one by one or, when the view is too far
+ * out for that, as the populations of the blocks of 2^blockLog2 by 2^blockLog2 cells covering them.
+ * @author Dirglehurbleherb
+ */
+public class ViewArea {
+	/** The blockLog2 of an area whose cells are captured one by one. */
+	public static final int CELLS = -1;
+
+	private final int minX;
+	private final int minY;
+	private final int maxX;
+	private final int maxY;
+	private final int blockLog2;
+
+	public ViewArea(int minX, int minY, int maxX, int maxY, int blockLog2) {
+		this.minX = minX;
+		this.minY = minY;
+		this.maxX = maxX;
+		this.maxY = maxY;
+		this.blockLog2 = blockLog2;
+	}
+
+	public int getMinX() {
+		return minX;
+	}
+
+	public int getMinY() {
+		return minY;
+	}
+
+	public int getMaxX() {
+		return maxX;
+	}
+
+	public int getMaxY() {
+		return maxY;
+	}
+
+	/**
+	 * @return the size of the blocks, or CELLS
+	 */
+	public int getBlockLog2() {
+		return blockLog2;
+	}
+
+	public boolean isCells() {
+		return blockLog2 == CELLS;
+	}
+}